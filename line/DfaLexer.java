@@ -0,0 +1,332 @@
+package oop.ex6.line;
+
+/**
+ * A hand written, single pass scanner that recognizes exactly the same tokens as the
+ * ordered regex alternation built out of the TokenType patterns, without using the regex engine.
+ * Every position of a line is classified through a character class table, and the first char
+ * decides which of the (few) candidate token types are tried, in the same priority order as
+ * the order of the TokenType enum.
+ * After each call to match, the end of the matched token is available through getMatchEnd.
+ * Splitting a line takes linear time in its length: apart from a constant number of lookahead
+ * chars, every match only scans chars that end up in its token, or in the whitespace right after
+ * it, except for a string that isn't closed. Such a scan goes on to the end of the line (or to a
+ * line terminator) without finding a second quote, so only the quote right after the opening one,
+ * if there is one, may start another such scan over the same chars. The regex alternation has no
+ * such bound, which is why a budget of line length is still worth setting when it is used.
+ * @author Alon and Michal
+ *
+ */
+class DfaLexer {
+
+	// Character classes, as defined by the regex patterns of the token types.
+	// Only ASCII chars belong to any class (\d, \w and \s are ASCII only in java regex).
+	private static final int DIGIT_CLASS = 1;
+	private static final int LETTER_CLASS = 2;
+	private static final int WORD_CLASS = 4;
+	private static final int SPACE_CLASS = 8;
+	private static final int VARNAME_PART_CLASS = 16;
+	private static final int ASCII_LIMIT = 128;
+	private static final byte[] CHAR_CLASSES = createCharClassTable();
+
+	private static final String TRUE_LITERAL = "true";
+	private static final String FALSE_LITERAL = "false";
+	private static final String INT_KEYWORD = "int ";
+	private static final String DOUBLE_KEYWORD = "double ";
+	private static final String STRING_KEYWORD = "String ";
+	private static final String CHAR_KEYWORD = "char ";
+	private static final String BOOLEAN_KEYWORD = "boolean ";
+	private static final String VOID_KEYWORD = "void ";
+	private static final String FINAL_KEYWORD = "final ";
+	private static final String IF_KEYWORD = "if";
+	private static final String WHILE_KEYWORD = "while";
+	private static final String RETURN_KEYWORD = "return;";
+
+	private int matchEnd;
+
+	/**
+	 * Finds the token that starts in the given position of the line.
+	 * @param line The line being tokenized
+	 * @param start Position of the first char of the token
+	 * @return The type of the token found, or null if no token type matches the char at the given
+	 * position (in which case the char should be skipped, as the regex matcher does).
+	 */
+	TokenType match(CharSequence line, int start) {
+		int length = line.length();
+		char firstChar = line.charAt(start);
+		int end;
+
+		if (firstChar == '-' || isOfClass(firstChar, DIGIT_CLASS)) {
+			TokenType numberType = matchNumber(line, start, length);
+			if (numberType != null) {
+				return numberType;
+			}
+			return matchOtherToken(line, start);
+		}
+
+		if (isOfClass(firstChar, LETTER_CLASS)) {
+			return matchWord(line, start, length);
+		}
+
+		if (isOfClass(firstChar, SPACE_CLASS)) {
+			end = skipClass(line, start + 1, length, SPACE_CLASS);
+			return setMatch(TokenType.WHITESPACE, end);
+		}
+
+		switch (firstChar) {
+		case '"':
+			end = findStringEnd(line, start, length);
+			if (end != start) {
+				return setMatch(TokenType.STRINGVAL, end);
+			}
+			break;
+		case '\'':
+			end = findCharEnd(line, start, length);
+			if (end != start) {
+				return setMatch(TokenType.CHARVAL, end);
+			}
+			break;
+		case '_':
+			end = skipClass(line, start + 1, length, WORD_CLASS);
+			if (end > start + 1) {
+				return setMatch(TokenType.VARNAME, end);
+			}
+			break;
+		case ',':
+			return setMatch(TokenType.COMMA, start + 1);
+		case '{':
+			return setMatch(TokenType.OPENINGBRACKET, start + 1);
+		case '}':
+			return setMatch(TokenType.CLOSINGBRACKET, start + 1);
+		case '(':
+			return setMatch(TokenType.OPENINGPARENTHESIS, start + 1);
+		case ')':
+			return setMatch(TokenType.CLOSINGPARENTHESIS, start + 1);
+		case '=':
+			return setMatch(TokenType.EQUALS, start + 1);
+		case ';':
+			return setMatch(TokenType.SEMICOLON, start + 1);
+		case '&':
+			if (isCharAt(line, start + 1, '&')) {
+				return setMatch(TokenType.ANDBOOL, start + 2);
+			}
+			break;
+		case '|':
+			if (isCharAt(line, start + 1, '|')) {
+				return setMatch(TokenType.ORBOOL, start + 2);
+			}
+			break;
+		case '/':
+			if (isCharAt(line, start + 1, '/')) {
+				return setMatch(TokenType.COMMENTDECLARE, start + 2);
+			}
+			break;
+		default:
+			break;
+		}
+		return matchOtherToken(line, start);
+	}
+
+	/**
+	 * @return The position right after the last token that was matched.
+	 */
+	int getMatchEnd() {
+		return matchEnd;
+	}
+
+	/**
+	 * Returns the end of the actual name within a METHODNAME token: the name ends at the first
+	 * space, or at the opening parenthesis if there is no space.
+	 * @param line The tokenized line
+	 * @param start Start of the METHODNAME token
+	 * @param end End of the METHODNAME token
+	 * @return The end position of the method's name
+	 */
+	static int getMethodNameEnd(CharSequence line, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (line.charAt(i) == ' ') {
+				return i;
+			}
+		}
+		return end - 1;
+	}
+
+	/*
+	 * DOUBLEVAL ("-?\d++(?:\.\d+)") and INTVAL ("-?\d+"). Returns null if neither match.
+	 */
+	private TokenType matchNumber(CharSequence line, int start, int length) {
+		int digitsStart = line.charAt(start) == '-' ? start + 1 : start;
+		if (digitsStart >= length || !isOfClass(line.charAt(digitsStart), DIGIT_CLASS)) {
+			return null;
+		}
+		int digitsEnd = skipClass(line, digitsStart + 1, length, DIGIT_CLASS);
+		if (isCharAt(line, digitsEnd, '.') && digitsEnd + 1 < length
+				&& isOfClass(line.charAt(digitsEnd + 1), DIGIT_CLASS)) {
+			return setMatch(TokenType.DOUBLEVAL, skipClass(line, digitsEnd + 2, length, DIGIT_CLASS));
+		}
+		return setMatch(TokenType.INTVAL, digitsEnd);
+	}
+
+	/*
+	 * All the token types that may start with a letter, in the order of the TokenType enum:
+	 * BOOLEANVAL, the type keywords, VOID, FINAL, IF, WHILE, RETURN, METHODNAME and VARNAME.
+	 */
+	private TokenType matchWord(CharSequence line, int start, int length) {
+		if (startsWith(line, start, TRUE_LITERAL)) {
+			return setMatch(TokenType.BOOLEANVAL, start + TRUE_LITERAL.length());
+		}
+		if (startsWith(line, start, FALSE_LITERAL)) {
+			return setMatch(TokenType.BOOLEANVAL, start + FALSE_LITERAL.length());
+		}
+		if (startsWith(line, start, INT_KEYWORD)) {
+			return setMatch(TokenType.INT, start + INT_KEYWORD.length());
+		}
+		if (startsWith(line, start, DOUBLE_KEYWORD)) {
+			return setMatch(TokenType.DOUBLE, start + DOUBLE_KEYWORD.length());
+		}
+		if (startsWith(line, start, STRING_KEYWORD)) {
+			return setMatch(TokenType.STRING, start + STRING_KEYWORD.length());
+		}
+		if (startsWith(line, start, CHAR_KEYWORD)) {
+			return setMatch(TokenType.CHAR, start + CHAR_KEYWORD.length());
+		}
+		if (startsWith(line, start, BOOLEAN_KEYWORD)) {
+			return setMatch(TokenType.BOOLEAN, start + BOOLEAN_KEYWORD.length());
+		}
+		if (startsWith(line, start, VOID_KEYWORD)) {
+			return setMatch(TokenType.VOID, start + VOID_KEYWORD.length());
+		}
+		if (startsWith(line, start, FINAL_KEYWORD)) {
+			return setMatch(TokenType.FINAL, start + FINAL_KEYWORD.length());
+		}
+		int end;
+		if (startsWith(line, start, IF_KEYWORD)) {
+			end = skipClass(line, start + IF_KEYWORD.length(), length, SPACE_CLASS);
+			if (isCharAt(line, end, '(')) {
+				return setMatch(TokenType.IF, end + 1);
+			}
+		}
+		if (startsWith(line, start, WHILE_KEYWORD)) {
+			end = skipClass(line, start + WHILE_KEYWORD.length(), length, SPACE_CLASS);
+			if (isCharAt(line, end, '(')) {
+				return setMatch(TokenType.WHILE, end + 1);
+			}
+		}
+		if (startsWith(line, start, RETURN_KEYWORD)) {
+			return setMatch(TokenType.RETURN, start + RETURN_KEYWORD.length());
+		}
+		int wordEnd = skipClass(line, start + 1, length, WORD_CLASS);
+		end = skipClass(line, wordEnd, length, SPACE_CLASS);
+		if (isCharAt(line, end, '(')) {
+			return setMatch(TokenType.METHODNAME, end + 1);
+		}
+		return setMatch(TokenType.VARNAME, skipClass(line, wordEnd, length, VARNAME_PART_CLASS));
+	}
+
+	/*
+	 * STRINGVAL ("\".+\"+"): the greedy ".+" stretches the string up to the last quote that
+	 * appears before the end of the line (or before a line terminator), as long as there is at
+	 * least one char between the quotes. Returns start if there is no such quote.
+	 */
+	private int findStringEnd(CharSequence line, int start, int length) {
+		int lastQuote = start;
+		for (int i = start + 1; i < length && !isLineTerminator(line.charAt(i)); i++) {
+			if (line.charAt(i) == '"' && i > start + 1) {
+				lastQuote = i;
+			}
+		}
+		return lastQuote == start ? start : lastQuote + 1;
+	}
+
+	/*
+	 * CHARVAL ("\'.\'"). The middle char may be any single code point except a line terminator.
+	 * Returns start if there is no match.
+	 */
+	private int findCharEnd(CharSequence line, int start, int length) {
+		if (start + 1 >= length || isLineTerminator(line.charAt(start + 1))) {
+			return start;
+		}
+		int closingQuote = start + 1 + Character.charCount(Character.codePointAt(line, start + 1));
+		return isCharAt(line, closingQuote, '\'') ? closingQuote + 1 : start;
+	}
+
+	/*
+	 * OTHERTOKEN ("."), which matches any single code point except for line terminators.
+	 * A line terminator isn't matched by any of the token types, and is skipped.
+	 */
+	private TokenType matchOtherToken(CharSequence line, int start) {
+		if (isLineTerminator(line.charAt(start))) {
+			matchEnd = start + 1;
+			return null;
+		}
+		return setMatch(TokenType.OTHERTOKEN,
+				start + Character.charCount(Character.codePointAt(line, start)));
+	}
+
+	private TokenType setMatch(TokenType tokenType, int end) {
+		matchEnd = end;
+		return tokenType;
+	}
+
+	private static int skipClass(CharSequence line, int from, int length, int charClass) {
+		int i = from;
+		while (i < length && isOfClass(line.charAt(i), charClass)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean startsWith(CharSequence line, int start, String prefix) {
+		if (start + prefix.length() > line.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(start + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCharAt(CharSequence line, int index, char expected) {
+		return index < line.length() && line.charAt(index) == expected;
+	}
+
+	private static boolean isOfClass(char c, int charClass) {
+		return c < ASCII_LIMIT && (CHAR_CLASSES[c] & charClass) != 0;
+	}
+
+	/**
+	 * @param line A line
+	 * @return True iff the first token of the line that isn't a whitespace is a comment
+	 */
+	static boolean startsComment(CharSequence line) {
+		int length = line.length();
+		int start = skipClass(line, 0, length, SPACE_CLASS);
+		return start + 1 < length && line.charAt(start) == '/' && line.charAt(start + 1) == '/';
+	}
+
+	/*
+	 * The chars that the regex "." doesn't match.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private static byte[] createCharClassTable() {
+		byte[] table = new byte[ASCII_LIMIT];
+		for (char c = '0'; c <= '9'; c++) {
+			table[c] = DIGIT_CLASS | WORD_CLASS | VARNAME_PART_CLASS;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			table[c] = LETTER_CLASS | WORD_CLASS | VARNAME_PART_CLASS;
+			table[Character.toUpperCase(c)] = LETTER_CLASS | WORD_CLASS | VARNAME_PART_CLASS;
+		}
+		table['_'] = WORD_CLASS | VARNAME_PART_CLASS;
+		// The VARNAME pattern "[a-zA-Z-0-9_]" includes the '-' char as well.
+		table['-'] = VARNAME_PART_CLASS;
+		for (char c : new char[] {' ', '\t', '\n', '\u000B', '\f', '\r'}) {
+			table[c] = SPACE_CLASS;
+		}
+		return table;
+	}
+}
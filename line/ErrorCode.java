@@ -0,0 +1,120 @@
+package oop.ex6.line;
+
+/**
+ * The errors that can be found in a line of an s-Java file. The tokenizer, the tables and the
+ * validators return these codes instead of throwing exceptions, so that a failed check costs no
+ * more than a successful one: the message of an error is only put together when it is described,
+ * which is when the verdict on the file is printed.
+ * Every code belongs to a category, by the stage that finds it, and its description is the prefix
+ * of the category followed by the message of the code.
+ * @author Alon and Michal
+ *
+ */
+public enum ErrorCode {
+
+	// Line type errors.
+	NO_TOKENS(Category.PARSE, "Line: No legal tokens in line"),
+	NO_LEADING_KEYWORD(Category.PARSE, "Line: Line doesn't start with a valid keyword"),
+
+	// Syntax errors.
+	UNKNOWN_STATE(Category.SYNTAX, "Unknown state"),
+	NO_SEMICOLON_AT_END(Category.SYNTAX, "Doesn't end in semicolon"),
+	NO_OPENING_BRACKET_AT_END(Category.SYNTAX, "Doesn't end in opening bracket"),
+	ILLEGAL_CLOSING_BRACKET_LINE(Category.SYNTAX, "Illegal closing bracket line"),
+	ILLEGAL_TOKEN_TYPE(Category.SYNTAX, "Illegal TokenType"),
+	NO_VAR_NAME_AFTER_TYPE(Category.SYNTAX, "No var name after type"),
+	NO_VARIABLE_NAME_AFTER_TYPE(Category.SYNTAX, "No variable name after type"),
+	EXPECTED_EQUALS_SIGN(Category.SYNTAX, "Expected equals sign"),
+	EXPECTED_VARIABLE_VALUE(Category.SYNTAX, "Expected variable value"),
+	EXPECTED_VAR_VAL(Category.SYNTAX, "Expected var val"),
+	UNEXPECTED_TOKEN(Category.SYNTAX, "Unexpected token"),
+	SYNTAX_UNEXPECTED_TOKEN(Category.SYNTAX, "Syntax: unexpected token"),
+	EXPECTED_VARIABLE_NAME(Category.SYNTAX, "Expected variable name"),
+	EXPECTED_VARNAME(Category.SYNTAX, "Expected varname"),
+	EXPECTED_TYPE_AFTER_FINAL(Category.SYNTAX,
+			"Phrase after final declaration must be a variable type"),
+	EXPECTED_VARIABLE_TYPE(Category.SYNTAX, "Expected variable type"),
+	EXPECTED_METHOD_NAME(Category.SYNTAX, "Expected legal method name"),
+	EXPECTED_SEMICOLON(Category.SYNTAX, "Expected semicolon"),
+	TOKEN_AFTER_END(Category.SYNTAX, "Nothing should appear after semicolon"),
+
+	// Table errors.
+	VARIABLE_EXISTS(Category.TABLE, "Requested variable already exists"),
+	VARIABLE_NOT_DECLARED(Category.TABLE, "Requested Variable hasn't been declared"),
+	METHOD_EXISTS(Category.TABLE, "Requested method already exists"),
+	METHOD_NOT_DECLARED(Category.TABLE, "Requested method has not been declared"),
+	WRONG_PARAMETER_COUNT(Category.TABLE,
+			"Trying to call method with invalid number of parameters"),
+	WRONG_PARAMETER_TYPE(Category.TABLE, "Trying to call method with invalid parameter type"),
+
+	// Scope errors.
+	TOO_MANY_CLOSING_BRACKETS(Category.SCOPE, "Too many closing brackets"),
+
+	// Semantics errors.
+	UNCLOSED_BRACKETS(Category.SEMANTICS, "Not all brackets were closed"),
+	NO_VALUE_IN_SCOPE(Category.SEMANTICS, "Variable does not exist with value in legal scope"),
+	VALUE_TYPE_MISMATCH(Category.SEMANTICS, "Value doesn't match variable type"),
+	REFERENCED_TYPE_MISMATCH(Category.SEMANTICS,
+			"New Variable type doesn't match referenced variable type"),
+	VARIABLE_NOT_INITIALIZED(Category.SEMANTICS, "Variable wasn't initialized"),
+	ASSIGNED_VARIABLE_NOT_INITIALIZED(Category.SEMANTICS, "Variable has not been initialized"),
+	VARIABLE_TYPES_MISMATCH(Category.SEMANTICS, "Variable types do not match"),
+	ASSIGNMENT_TO_FINAL(Category.SEMANTICS, "trying to assign value to final var"),
+	METHOD_CALL_IN_GLOBAL_SCOPE(Category.SEMANTICS, "Attempt to call method from global scope"),
+	INVALID_CONDITION(Category.SEMANTICS, "Invalid Condition within if/while"),
+	CONDITION_VARIABLE_NOT_INITIALIZED(Category.SEMANTICS,
+			"Variable within if/while wasn't initialized"),
+	CONDITION_IN_GLOBAL_SCOPE(Category.SEMANTICS, ""),
+	NESTED_METHOD_DECLARATION(Category.SEMANTICS, "Cannot declare method within method"),
+	RETURN_IN_GLOBAL_SCOPE(Category.SEMANTICS, "Return statement cannot appear in global scope"),
+	MISSING_RETURN(Category.SEMANTICS, "Symantics error");
+
+	/**
+	 * The kinds of errors, by the stage of the verification that finds them. Each kind of error
+	 * is described with its own prefix.
+	 * @author Alon and Michal
+	 *
+	 */
+	public static enum Category {
+		PARSE("Invalid line type: "),
+		SYNTAX("Syntax error: "),
+		TABLE("Invalid table operation: "),
+		SCOPE("Scope error: "),
+		SEMANTICS("Semantics error: ");
+
+		private final String prefix;
+
+		private Category(String prefix) {
+			this.prefix = prefix;
+		}
+	}
+
+	private final Category category;
+	private final String message;
+
+	private ErrorCode(Category category, String message) {
+		this.category = category;
+		this.message = message;
+	}
+
+	/**
+	 * @return The kind of the error
+	 */
+	public Category getCategory() {
+		return category;
+	}
+
+	/**
+	 * @return Message of the error, without its category
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return Explanation of the error, as it is reported to the user
+	 */
+	public String describe() {
+		return category.prefix + message;
+	}
+}
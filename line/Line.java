@@ -1,15 +1,11 @@
 package oop.ex6.line;
 
-import java.text.ParseException;
-import java.util.List;
-
-import oop.ex6.line.Tokenizer.Token;
-
 /**
  * This class represents a line of text within the Sjava file. The line
- * hold a list of recognizable tokens - words/symbols that exist in the Sjava language.
+ * is a view over the range of recognizable tokens - words/symbols that exist in the Sjava language -
+ * that the tokenizer stored for it in the file's TokenBuffer.
  * The line type is defined by the first of these tokens (for instance a line starting with "void"
- * will be a method declaration line).
+ * will be a method declaration line). A line whose type can't be defined holds the reason instead.
  * @author Alon and Michal
  *
  */
@@ -22,50 +18,62 @@ public class Line {
 		WHILE_STATEMENT, CLOSING_BRACKET;
 	}
 
-	private final int lineNumber;
-	private String scope;
-	private final List<Token> tokenList;
+	private int lineNumber;
+	private int scope;
+	private final TokenBuffer tokenBuffer;
+	private final int firstTokenIndex;
+	private final int tokenCount;
 	LineType lineType;
+	private ErrorCode typeError;
 
 	/**
 	 * Constructor
 	 * @param lineNumber Line number within the file
-	 * @param tokenList List of tokens that represent the line
-	 * @throws ParseException 
+	 * @param tokenBuffer The buffer holding the tokens of the file
+	 * @param firstTokenIndex Index of the line's first token within the buffer
+	 * @param tokenCount Number of tokens in the line
 	 */
-	public Line(int lineNumber, List<Token> tokenList) throws ParseException {
+	public Line(int lineNumber, TokenBuffer tokenBuffer, int firstTokenIndex, int tokenCount) {
 		this.lineNumber = lineNumber;
-		this.tokenList = tokenList;
+		this.tokenBuffer = tokenBuffer;
+		this.firstTokenIndex = firstTokenIndex;
+		this.tokenCount = tokenCount;
 		determineLineType();
 		
 
 	}
 
 	/**
-	 * @param scope The scope that the line is in
+	 * @param scope Id of the scope that the line is in
 	 */
-	public void setScope(String scope) {
+	public void setScope(int scope) {
 		this.scope = scope;
 
 	}
 
 
 	/**
-	 * @return The scope of the line is in
-	 * @throws ParseException 
+	 * @return Id of the scope of the line is in
 	 */
-	public String getScope(){
+	public int getScope(){
 		return scope;
 	}
 
 	/**
-	 * @return The type of the line, determined by the first token.
-	 * @throws ParseException
+	 * @return The type of the line, determined by the first token, or null if it couldn't be
+	 * determined.
 	 */
 	public LineType getLineType(){
 		return lineType;
 	}
 
+	/**
+	 * @return The reason the type of the line couldn't be determined, or null if it was.
+	 */
+	public ErrorCode getTypeError(){
+		return typeError;
+	}
+
 	/**
 	 * @return Line number within the code file
 	 */
@@ -74,22 +82,73 @@ public class Line {
 	}
 
 	/**
-	 * @return List of tokens representing the line
+	 * Adds the given offset to the line's number, for a line that was numbered relative to
+	 * the start of a part of the file.
+	 * @param offset Offset to add
+	 */
+	public void offsetLineNumber(int offset) {
+		lineNumber += offset;
+	}
+
+	/**
+	 * @return Number of tokens representing the line
+	 */
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * @param index Index of a token within the line
+	 * @return TokenType of the token
 	 */
-	public List<Token> getTokenList() {
-		return tokenList;
+	public TokenType getTokenType(int index) {
+		return tokenBuffer.getTokenType(firstTokenIndex + index);
+	}
+
+	/**
+	 * @param index Index of a token within the line
+	 * @return Name of method\variable, or null if the token isn't a name.
+	 */
+	public String getTokenName(int index) {
+		return tokenBuffer.getName(firstTokenIndex + index);
+	}
+
+	/**
+	 * @param index Index of a token within the line
+	 * @return Interned id of the method\variable name, or TokenBuffer.NO_NAME if the token 
+	 * isn't a name.
+	 */
+	public int getTokenNameId(int index) {
+		return tokenBuffer.getNameId(firstTokenIndex + index);
 	}
 	
 	/**
-	 * Determines the type of line according to the first token.
-	 * @return Line Type
-	 * @throws ParseException
+	 * @param index Index of a token within the line
+	 * @return Slot of the variable the token's name was bound to, or TokenBuffer.NOT_BOUND or
+	 * TokenBuffer.UNRESOLVED if it isn't bound to one.
 	 */
-	private void determineLineType() throws ParseException {
-		if(tokenList.size() == 0){
-			throw new ParseException("Line: No legal tokens in line", lineNumber);
+	public int getTokenBinding(int index) {
+		return tokenBuffer.getBinding(firstTokenIndex + index);
+	}
+
+	/**
+	 * @param index Index of a token within the line
+	 * @param binding Slot of the variable the token's name is bound to, or
+	 * TokenBuffer.UNRESOLVED
+	 */
+	public void bindToken(int index, int binding) {
+		tokenBuffer.setBinding(firstTokenIndex + index, binding);
+	}
+	
+	/**
+	 * Determines the type of line according to the first token, or the reason it has none.
+	 */
+	private void determineLineType() {
+		if(tokenCount == 0){
+			typeError = ErrorCode.NO_TOKENS;
+			return;
 		}
-		TokenType firstToken = tokenList.get(0).getTokenType();
+		TokenType firstToken = getTokenType(0);
 		if (TokenType.isVarType(firstToken)) {
 			lineType = LineType.VAR_DECLARATION;
 		}else{
@@ -122,8 +181,8 @@ public class Line {
 				lineType = LineType.COMMENT;
 				break;
 			default:
-				throw new ParseException("Line: Line doesn't start"
-					               	+" with a valid keyword",lineNumber);
+				typeError = ErrorCode.NO_LEADING_KEYWORD;
+				break;
 			}
 		}
 	}
@@ -0,0 +1,46 @@
+package oop.ex6.line;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of the lines of an s-Java code file.
+ * @author Alon and Michal
+ *
+ */
+public interface LineSource extends Closeable {
+
+	/**
+	 * Advances to the next line of the source.
+	 * @return True iff there was another line in the source
+	 * @throws IOException
+	 */
+	boolean nextLine() throws IOException;
+
+	/**
+	 * @return The current line. The returned sequence is only valid until the next call to
+	 * nextLine.
+	 */
+	CharSequence getLine();
+
+	/**
+	 * @return True iff the current line holds only whitespace, and should be ignored.
+	 */
+	boolean isLineBlank();
+
+	/**
+	 * @return True iff the first characters of the current line that aren't whitespace start a
+	 * comment, so that the rest of the line needn't be split into tokens.
+	 */
+	boolean isLineComment();
+
+	/**
+	 * Limits the length of the lines read from now on. A source that has to scan a line to find
+	 * its end stops scanning as soon as it knows the line is longer, and nextLine then throws a
+	 * LineTooLongException. A source that holds its lines already doesn't have to do anything, and
+	 * its lines should be checked by their length.
+	 * @param maxLineLength Number of characters a line may hold
+	 */
+	default void limitLineLength(int maxLineLength) {
+	}
+}
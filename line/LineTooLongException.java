@@ -0,0 +1,22 @@
+package oop.ex6.line;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown by a line source that was given a maximal line length (see
+ * LineSource.limitLineLength) when it finds a longer line, which it stops reading as soon as it
+ * knows the line is too long.
+ * @author Alon and Michal
+ *
+ */
+public class LineTooLongException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor
+	 * @param maxLineLength Number of characters a line may hold
+	 */
+	public LineTooLongException(int maxLineLength) {
+		super("Line is longer than " + maxLineLength + " characters");
+	}
+}
@@ -0,0 +1,348 @@
+package oop.ex6.line;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Reads the lines of a source file through a memory mapping of the file, instead of decoding
+ * the whole file into Strings. Lines are found by scanning the raw bytes for '\n' and '\r', eight
+ * bytes at a time: each block of bytes is read as a single long, and a few bitwise operations on it
+ * find the first line break in the block, whether the block has non ASCII bytes, and its first
+ * byte that isn't a white space. The reader thus also knows, without looking at the line again,
+ * whether the line is blank and whether it starts with a comment.
+ * Lines made only of ASCII bytes are handed to the tokenizer as a view over the mapped bytes,
+ * without being copied; other lines are decoded with the default charset, like a Scanner would.
+ * Files larger than a single mapping are read through consecutive windows of the file.
+ * A reader can also read only a range of the file, so that several parts of the file can be
+ * read concurrently.
+ * Given a maximal line length, the reader scans no further into a line than the bytes that length
+ * of chars may take in the charset, and rejects the line as soon as it passed that many bytes, or
+ * the limit itself while the line is still ASCII, so a long line is never read nor decoded in full.
+ * @author Alon and Michal
+ *
+ */
+public class MappedSourceReader implements LineSource {
+
+	private static final long MAX_WINDOW_SIZE = 1L << 30;
+	private static final byte LINE_FEED = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+	private static final int LAST_BLANK_CHAR = ' ';
+	private static final byte COMMENT_CHAR = '/';
+	// Every byte of a block set to the same value, for scanning blocks of bytes.
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long LINE_FEEDS = LOW_BITS * LINE_FEED;
+	private static final long CARRIAGE_RETURNS = LOW_BITS * CARRIAGE_RETURN;
+	// Added to the seven low bits of a byte, carries into its high bit iff it's above a blank.
+	private static final long ABOVE_BLANK_OFFSET = LOW_BITS * (Byte.MAX_VALUE - LAST_BLANK_CHAR);
+	private static final int BYTE_SHIFT = 3;
+	private static final int HIGH_BIT = 7;
+	private static final int NONE = -1;
+	private static final String UNICODE_LINE_SEPARATORS = "[\\u0085\\u2028\\u2029]";
+	private static final int SEARCH_BUFFER_SIZE = 4096;
+	private static final long NO_LIMIT = Long.MAX_VALUE;
+
+	private final FileChannel channel;
+	private final long rangeEnd;
+	private final Charset charset;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int position;
+	private boolean skipLineFeed;
+	private int maxLineLength;
+	private long maxLineBytes;
+
+	private final AsciiLineView asciiLine;
+	private final Queue<String> pendingLines;
+	private CharSequence currentLine;
+	private boolean isCurrentLineBlank;
+	private boolean isCurrentLineComment;
+	private boolean isAscii;
+	private int firstNonBlank;
+
+	/**
+	 * Constructor. Opens and maps the given file.
+	 * @param path Path of the source file
+	 * @throws IOException
+	 */
+	public MappedSourceReader(Path path) throws IOException {
+		this(path, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor. Opens the given file and maps the given range of it. The range should start
+	 * at the beginning of a line, and end right after a line break (or at the end of the file).
+	 * @param path Path of the source file
+	 * @param rangeStart Offset of the first byte to read
+	 * @param rangeEnd Offset right after the last byte to read
+	 * @throws IOException
+	 */
+	public MappedSourceReader(Path path, long rangeStart, long rangeEnd) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.rangeEnd = Math.min(rangeEnd, channel.size());
+		charset = Charset.defaultCharset();
+		asciiLine = new AsciiLineView();
+		pendingLines = new ArrayDeque<String>();
+		maxLineBytes = NO_LIMIT;
+		mapWindow(Math.min(rangeStart, this.rangeEnd));
+	}
+
+	/**
+	 * Finds the first line that starts at or after the given offset of the file.
+	 * @param channel Channel of the file
+	 * @param offset An offset within the file
+	 * @return Offset of the start of the line, or the size of the file if there is no such line.
+	 * @throws IOException
+	 */
+	public static long findLineStart(FileChannel channel, long offset) throws IOException {
+		if (offset == 0) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+		long position = offset - 1;
+		int bytesRead;
+		while ((bytesRead = channel.read(buffer, position)) > 0) {
+			for (int i = 0; i < bytesRead; i++) {
+				if (buffer.get(i) == LINE_FEED) {
+					return position + i + 1;
+				}
+			}
+			position += bytesRead;
+			buffer.clear();
+		}
+		return channel.size();
+	}
+
+	@Override
+	public void limitLineLength(int maxLineLength) {
+		this.maxLineLength = maxLineLength;
+		// A charset that can't encode doesn't tell how many bytes a char may take.
+		maxLineBytes = charset.canEncode() ? (long) Math.ceil(maxLineLength
+				* (double) charset.newEncoder().maxBytesPerChar()) : NO_LIMIT;
+	}
+
+	@Override
+	public boolean nextLine() throws IOException {
+		if (!pendingLines.isEmpty()) {
+			setDecodedLine(pendingLines.poll());
+			return true;
+		}
+		if (skipLineFeed) {
+			skipLineFeed = false;
+			if (hasMoreBytes() && window.get(position) == LINE_FEED) {
+				position++;
+			}
+		}
+		if (!hasMoreBytes()) {
+			return false;
+		}
+
+		isAscii = true;
+		firstNonBlank = NONE;
+		int lineEnd = position;
+		while (true) {
+			lineEnd = scanLine(lineEnd, getScanLimit());
+			if (lineEnd - position > maxLineBytes
+					|| (isAscii && maxLineBytes != NO_LIMIT && lineEnd - position > maxLineLength)) {
+				throw new LineTooLongException(maxLineLength);
+			}
+			if (lineEnd < window.limit() || windowStart + lineEnd == rangeEnd) {
+				break;
+			}
+			if (position == 0) {
+				throw new IOException("Line too long to be mapped");
+			}
+			// The line continues past the end of the window, the window is moved to its start.
+			lineEnd -= position;
+			if (firstNonBlank != NONE) {
+				firstNonBlank -= position;
+			}
+			mapWindow(windowStart + position);
+		}
+		byte currentByte = lineEnd < window.limit() ? window.get(lineEnd) : 0;
+
+		if (isAscii) {
+			asciiLine.set(window, position, lineEnd - position);
+			currentLine = asciiLine;
+			isCurrentLineBlank = firstNonBlank == NONE;
+			isCurrentLineComment = !isCurrentLineBlank
+					&& window.get(firstNonBlank) == COMMENT_CHAR && DfaLexer.startsComment(asciiLine);
+		} else {
+			decodeLine(position, lineEnd);
+		}
+
+		position = lineEnd;
+		if (lineEnd < window.limit()) {
+			position++;
+			skipLineFeed = currentByte == CARRIAGE_RETURN;
+		}
+		return true;
+	}
+
+	@Override
+	public CharSequence getLine() {
+		return currentLine;
+	}
+
+	@Override
+	public boolean isLineBlank() {
+		return isCurrentLineBlank;
+	}
+
+	@Override
+	public boolean isLineComment() {
+		return isCurrentLineComment;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private boolean hasMoreBytes() throws IOException {
+		if (position == window.limit() && windowStart + position < rangeEnd) {
+			mapWindow(windowStart + position);
+		}
+		return position < window.limit();
+	}
+
+	/*
+	 * Returns the index of the window to scan the current line up to: the end of the window, or
+	 * right past the bytes the line may take, if it comes first.
+	 */
+	private int getScanLimit() {
+		if (maxLineBytes == NO_LIMIT) {
+			return window.limit();
+		}
+		return (int) Math.min(window.limit(), position + maxLineBytes + 1);
+	}
+
+	private void mapWindow(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+				Math.min(MAX_WINDOW_SIZE, rangeEnd - start));
+		// Blocks are read with their first byte in the lowest bits.
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		position = 0;
+	}
+
+	/*
+	 * Scans the window from the given index for the end of the line, a block of eight bytes at a
+	 * time, noting the non ASCII bytes and the first byte that isn't blank on the way. Returns
+	 * the index of the first line break, or the limit if there is none before it.
+	 */
+	private int scanLine(int from, int limit) {
+		int index = from;
+		while (index + Long.BYTES <= limit) {
+			long block = window.getLong(index);
+			long lineBreaks = findBytes(block, LINE_FEEDS) | findBytes(block, CARRIAGE_RETURNS);
+			// The bytes of the block that come before its first line break.
+			long lineBytes = lineBreaks == 0 ? -1L : (Long.lowestOneBit(lineBreaks) >>> HIGH_BIT) - 1;
+			if ((block & HIGH_BITS & lineBytes) != 0) {
+				isAscii = false;
+			}
+			long nonBlanks = ((block & SEVEN_BITS) + ABOVE_BLANK_OFFSET) & HIGH_BITS & lineBytes;
+			if (nonBlanks != 0 && firstNonBlank == NONE) {
+				firstNonBlank = index + (Long.numberOfTrailingZeros(nonBlanks) >>> BYTE_SHIFT);
+			}
+			if (lineBreaks != 0) {
+				return index + (Long.numberOfTrailingZeros(lineBreaks) >>> BYTE_SHIFT);
+			}
+			index += Long.BYTES;
+		}
+		for (; index < limit; index++) {
+			byte currentByte = window.get(index);
+			if (currentByte == LINE_FEED || currentByte == CARRIAGE_RETURN) {
+				return index;
+			}
+			if (currentByte < 0) {
+				isAscii = false;
+			} else if (currentByte > LAST_BLANK_CHAR && firstNonBlank == NONE) {
+				firstNonBlank = index;
+			}
+		}
+		return limit;
+	}
+
+	/*
+	 * Returns the high bit of every byte of the block that is equal to the byte of the pattern,
+	 * where only the lowest one is exact: a match may also set the high bits of bytes above it.
+	 */
+	private static long findBytes(long block, long pattern) {
+		long difference = block ^ pattern;
+		return (difference - LOW_BITS) & ~difference & HIGH_BITS;
+	}
+
+	/*
+	 * Slow path for lines with non ASCII bytes. The decoded line may hold unicode line separators,
+	 * in which case it is split into several lines, as Scanner.nextLine would.
+	 */
+	private void decodeLine(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = window.get(start + i);
+		}
+		String[] lines = new String(bytes, charset).split(UNICODE_LINE_SEPARATORS, -1);
+		for (int i = 1; i < lines.length; i++) {
+			pendingLines.add(lines[i]);
+		}
+		setDecodedLine(lines[0]);
+	}
+
+	private void setDecodedLine(String line) {
+		currentLine = line;
+		isCurrentLineBlank = line.trim().isEmpty();
+		isCurrentLineComment = DfaLexer.startsComment(line);
+	}
+
+	/**
+	 * A view of a range of ASCII bytes in the mapped file as a sequence of chars.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static class AsciiLineView implements CharSequence {
+
+		private MappedByteBuffer bytes;
+		private int start;
+		private int length;
+
+		private void set(MappedByteBuffer bytes, int start, int length) {
+			this.bytes = bytes;
+			this.start = start;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) bytes.get(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int subStart, int subEnd) {
+			char[] chars = new char[subEnd - subStart];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = charAt(subStart + i);
+			}
+			return new String(chars);
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length).toString();
+		}
+	}
+}
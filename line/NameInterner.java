@@ -0,0 +1,128 @@
+package oop.ex6.line;
+
+import java.util.Arrays;
+
+/**
+ * Assigns a dense int id to every distinct variable/method name in a file. Names are looked up
+ * directly from the text of the line, so a String is only created the first time a name is seen;
+ * every later appearance of the name is identified by its id alone.
+ * The interner is an open addressing hash table of ids, probed linearly.
+ * @author Alon and Michal
+ *
+ */
+public class NameInterner {
+
+	private static final int EMPTY_SLOT = -1;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_LOAD_DIVISOR = 2;
+	private static final int GROWTH_FACTOR = 2;
+	private static final int HASH_MULTIPLIER = 31;
+	private static final int MIX_MULTIPLIER = 0x9E3779B9;
+
+	private int[] slots;
+	private String[] names;
+	private int[] nameHashes;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty interner.
+	 */
+	public NameInterner() {
+		slots = new int[INITIAL_CAPACITY];
+		Arrays.fill(slots, EMPTY_SLOT);
+		names = new String[INITIAL_CAPACITY / MAX_LOAD_DIVISOR];
+		nameHashes = new int[INITIAL_CAPACITY / MAX_LOAD_DIVISOR];
+		size = 0;
+	}
+
+	/**
+	 * @param name A variable/method name
+	 * @return The id of the name
+	 */
+	public int intern(String name) {
+		return intern(name, 0, name.length());
+	}
+
+	/**
+	 * Returns the id of the name that appears in the given range of the text, assigning it a new
+	 * id if this is the first time it is seen.
+	 * @param text Text holding the name
+	 * @param start Start of the name within the text
+	 * @param end End of the name within the text
+	 * @return The id of the name
+	 */
+	public int intern(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = HASH_MULTIPLIER * hash + text.charAt(i);
+		}
+		int mask = slots.length - 1;
+		int slot = mix(hash) & mask;
+		while (slots[slot] != EMPTY_SLOT) {
+			int id = slots[slot];
+			if (nameHashes[id] == hash && isSameName(names[id], text, start, end)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == names.length) {
+			grow();
+			return intern(text, start, end);
+		}
+		names[size] = text.subSequence(start, end).toString();
+		nameHashes[size] = hash;
+		slots[slot] = size;
+		return size++;
+	}
+
+	/**
+	 * @param id Id of a name
+	 * @return The name
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @return Number of distinct names interned
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static boolean isSameName(String name, CharSequence text, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != text.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Spreads the bits of the name's hash, so that similar names don't cluster in the table.
+	 */
+	private static int mix(int hash) {
+		int spread = hash * MIX_MULTIPLIER;
+		return spread ^ (spread >>> 16);
+	}
+
+	private void grow() {
+		int newCapacity = slots.length * GROWTH_FACTOR;
+		slots = new int[newCapacity];
+		Arrays.fill(slots, EMPTY_SLOT);
+		names = Arrays.copyOf(names, newCapacity / MAX_LOAD_DIVISOR);
+		nameHashes = Arrays.copyOf(nameHashes, newCapacity / MAX_LOAD_DIVISOR);
+		int mask = newCapacity - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = mix(nameHashes[id]) & mask;
+			while (slots[slot] != EMPTY_SLOT) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package oop.ex6.line;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Memory outside of the heap for the tokens of files (see TokenBuffer), as direct buffers of
+ * SEGMENT_INTS ints each, the segments of the columns of a token buffer. As all the segments have
+ * the same size, no single buffer ever has to hold the tokens of a whole file, and any segment
+ * given back can be handed out again: the segments given back are kept by their thread, up to a
+ * total number of bytes, and handed out to the next token buffers created on the thread, so a
+ * thread that verifies file after file only allocates memory for a file with more tokens than any
+ * file before it on the thread.
+ * A direct buffer is otherwise only freed once the garbage collector finds it unreachable, so the
+ * segments that aren't kept, and the kept segments once releaseKeptSegments is called - which the
+ * threads that verify files do once they are done (see BatchVerifier.newWorkerPool) - are freed
+ * right away by the cleaner of the buffer. Where the runtime doesn't let the cleaner be invoked,
+ * they are left to the garbage collector.
+ * @author Alon and Michal
+ *
+ */
+class OffHeapMemory {
+
+	static final int SEGMENT_INTS = 1 << 14;
+
+	private static final int SEGMENT_BYTES = SEGMENT_INTS * Integer.BYTES;
+	private static final long MAX_KEPT_BYTES = 16L << 20;
+	private static final int MAX_KEPT_SEGMENTS = (int) (MAX_KEPT_BYTES / SEGMENT_BYTES);
+	private static final String UNSAFE_CLASS_NAME = "sun.misc.Unsafe";
+	private static final String UNSAFE_FIELD_NAME = "theUnsafe";
+	private static final String INVOKE_CLEANER_NAME = "invokeCleaner";
+
+	private static final ThreadLocal<Deque<ByteBuffer>> KEPT_SEGMENTS =
+			ThreadLocal.withInitial(ArrayDeque::new);
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName(UNSAFE_CLASS_NAME);
+			Field unsafeField = unsafeClass.getDeclaredField(UNSAFE_FIELD_NAME);
+			unsafeField.setAccessible(true);
+			unsafe = unsafeField.get(null);
+			invokeCleaner = unsafeClass.getMethod(INVOKE_CLEANER_NAME, ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// The segments are left to the garbage collector.
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	/**
+	 * @return A buffer of SEGMENT_INTS ints in the native order, outside of the heap
+	 */
+	static ByteBuffer allocateSegment() {
+		ByteBuffer segment = KEPT_SEGMENTS.get().poll();
+		if (segment != null) {
+			return segment;
+		}
+		return ByteBuffer.allocateDirect(SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Gives back a segment that is no longer used, to be handed out again on the current thread,
+	 * or freed if the thread already keeps enough segments.
+	 * @param segment A segment returned by allocateSegment
+	 */
+	static void releaseSegment(ByteBuffer segment) {
+		Deque<ByteBuffer> keptSegments = KEPT_SEGMENTS.get();
+		if (keptSegments.size() < MAX_KEPT_SEGMENTS) {
+			keptSegments.push(segment);
+		} else {
+			free(segment);
+		}
+	}
+
+	/**
+	 * Frees all the segments kept by the current thread.
+	 */
+	static void releaseKeptSegments() {
+		for (ByteBuffer segment : KEPT_SEGMENTS.get()) {
+			free(segment);
+		}
+		KEPT_SEGMENTS.remove();
+	}
+
+	private static void free(ByteBuffer segment) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, segment);
+		} catch (ReflectiveOperationException e) {
+			// The segment is left to the garbage collector.
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package oop.ex6.line;
+
+/**
+ * The lines of code that is given as a String rather than as a file, such as code sent to the
+ * verifier server. The text is split at the same line breaks as a file is.
+ * @author Alon and Michal
+ *
+ */
+public class StringLineSource implements LineSource {
+
+	private static final String LINE_BREAKS = "\\r\\n|[\\n\\r\\u0085\\u2028\\u2029]";
+
+	private final String[] lines;
+	private int currentLine;
+
+	/**
+	 * Constructor
+	 * @param text The code
+	 */
+	public StringLineSource(String text) {
+		lines = text.split(LINE_BREAKS);
+		currentLine = -1;
+	}
+
+	@Override
+	public boolean nextLine() {
+		if (currentLine + 1 == lines.length) {
+			return false;
+		}
+		currentLine++;
+		return true;
+	}
+
+	@Override
+	public CharSequence getLine() {
+		return lines[currentLine];
+	}
+
+	@Override
+	public boolean isLineBlank() {
+		return lines[currentLine].trim().isEmpty();
+	}
+
+	@Override
+	public boolean isLineComment() {
+		return DfaLexer.startsComment(lines[currentLine]);
+	}
+
+	@Override
+	public void close() {
+	}
+}
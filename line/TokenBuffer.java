@@ -0,0 +1,381 @@
+package oop.ex6.line;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact store of all the tokens of a single file. Instead of holding an object for each token,
+ * the buffer holds parallel columns of ints: the ordinal of the token's type, the id of the token's
+ * name (for variable and method names) as given by the file's NameInterner, the number of the
+ * line the token appears in, and the binding of a variable name - the slot of the variable it was
+ * resolved to by the tables.
+ * A column is either an array on the heap, or a list of fixed size segments of memory outside of
+ * it (see OffHeapMemory), which the garbage collector never has to scan or move, and which no
+ * single buffer has to be large enough for; the lines and the validators read the tokens through
+ * the buffer's methods alone, whichever memory holds them. Off heap memory is given back by
+ * release, once the lines of the buffer are no longer needed.
+ * A buffer holds at most MAX_TOKENS tokens, the most an array can hold.
+ * Lines are views over a range of this buffer.
+ * @author Alon and Michal
+ *
+ */
+public class TokenBuffer {
+
+	public static final int NO_NAME = -1;
+	public static final int NOT_BOUND = -1;
+	public static final int UNRESOLVED = -2;
+	public static final int MAX_TOKENS = Integer.MAX_VALUE - 8;
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int GROWTH_FACTOR = 2;
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private final boolean isOffHeap;
+	private IntColumn tokenTypes;
+	private IntColumn nameIds;
+	private IntColumn lineNumbers;
+	private IntColumn bindings;
+	private int capacity;
+	private int size;
+	private NameInterner names;
+
+	/**
+	 * Constructor. Creates an empty buffer on the heap.
+	 */
+	public TokenBuffer() {
+		this(new NameInterner());
+	}
+
+	/**
+	 * Constructor. Creates an empty buffer on the heap, that gives names the ids of the given
+	 * interner.
+	 * @param names Interner for the names of the tokens
+	 */
+	public TokenBuffer(NameInterner names) {
+		this(names, false);
+	}
+
+	/**
+	 * Constructor. Creates an empty buffer, that gives names the ids of the given interner.
+	 * @param names Interner for the names of the tokens
+	 * @param isOffHeap True iff the tokens should be kept outside of the heap
+	 */
+	public TokenBuffer(NameInterner names, boolean isOffHeap) {
+		this.isOffHeap = isOffHeap;
+		tokenTypes = createColumn();
+		nameIds = createColumn();
+		lineNumbers = createColumn();
+		bindings = createColumn();
+		capacity = INITIAL_CAPACITY;
+		this.names = names;
+		size = 0;
+	}
+
+	/**
+	 * Adds a token without a name to the end of the buffer.
+	 * @param tokenType Type of token
+	 * @param lineNumber Number of the line the token appears in
+	 */
+	void add(TokenType tokenType, int lineNumber) {
+		append(tokenType, NO_NAME, lineNumber);
+	}
+
+	/**
+	 * Adds a token of a variable/method name to the end of the buffer.
+	 * @param tokenType Type of token
+	 * @param name Name of method/variable
+	 * @param lineNumber Number of the line the token appears in
+	 */
+	void add(TokenType tokenType, String name, int lineNumber) {
+		append(tokenType, names.intern(name), lineNumber);
+	}
+
+	/**
+	 * Adds a token of a variable/method name, which appears in the given range of a line,
+	 * to the end of the buffer.
+	 * @param tokenType Type of token
+	 * @param lineContent The line holding the name
+	 * @param nameStart Start of the name within the line
+	 * @param nameEnd End of the name within the line
+	 * @param lineNumber Number of the line the token appears in
+	 */
+	void add(TokenType tokenType, CharSequence lineContent, int nameStart, int nameEnd,
+			                                                                  int lineNumber) {
+		append(tokenType, names.intern(lineContent, nameStart, nameEnd), lineNumber);
+	}
+
+	/**
+	 * Removes all the tokens from the given index onward.
+	 * @param newSize The number of tokens to keep
+	 */
+	void truncate(int newSize) {
+		size = newSize;
+	}
+
+	/**
+	 * Moves the buffer to another interner: every name id in the buffer is replaced by the id
+	 * the name has in the new interner.
+	 * @param newNames The new interner
+	 */
+	public void moveToInterner(NameInterner newNames) {
+		int[] newIds = new int[names.size()];
+		for (int id = 0; id < newIds.length; id++) {
+			newIds[id] = newNames.intern(names.getName(id));
+		}
+		for (int i = 0; i < size; i++) {
+			int nameId = getNameId(i);
+			if (nameId != NO_NAME) {
+				nameIds.set(i, newIds[nameId]);
+			}
+		}
+		names = newNames;
+	}
+
+	/**
+	 * Adds the given offset to the line numbers of all the tokens in the buffer.
+	 * @param offset Offset to add
+	 */
+	public void offsetLineNumbers(int offset) {
+		for (int i = 0; i < size; i++) {
+			lineNumbers.set(i, lineNumbers.get(i) + offset);
+		}
+	}
+
+	/**
+	 * @return Number of tokens in the buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @return TokenType of the token
+	 */
+	public TokenType getTokenType(int index) {
+		return TOKEN_TYPES[tokenTypes.get(index)];
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @return Id of the token's name, or NO_NAME if it doesn't have one.
+	 */
+	public int getNameId(int index) {
+		return nameIds.get(index);
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @return Name of method\variable, or null if the token doesn't have a name.
+	 */
+	public String getName(int index) {
+		int nameId = getNameId(index);
+		return nameId == NO_NAME ? null : names.getName(nameId);
+	}
+
+	/**
+	 * @return The interner that gave the names in the buffer their ids
+	 */
+	public NameInterner getNameInterner() {
+		return names;
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @return Number of the line the token appears in
+	 */
+	public int getLineNumber(int index) {
+		return lineNumbers.get(index);
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @return Slot of the variable the token's name was bound to, NOT_BOUND if it wasn't
+	 * resolved yet, or UNRESOLVED if no variable was found for it.
+	 */
+	public int getBinding(int index) {
+		return bindings.get(index);
+	}
+
+	/**
+	 * @param index Index of a token in the buffer
+	 * @param binding Slot of the variable the token's name is bound to, or UNRESOLVED
+	 */
+	public void setBinding(int index, int binding) {
+		bindings.set(index, binding);
+	}
+
+	/**
+	 * Gives back the memory of the buffer, if it is off the heap, once the lines of the buffer are
+	 * no longer needed. The buffer can't be used afterwards.
+	 */
+	public void release() {
+		tokenTypes.release();
+		nameIds.release();
+		lineNumbers.release();
+		bindings.release();
+		tokenTypes = null;
+		nameIds = null;
+		lineNumbers = null;
+		bindings = null;
+	}
+
+	private void append(TokenType tokenType, int nameId, int lineNumber) {
+		if (size == capacity) {
+			capacity = getGrownCapacity(capacity);
+			tokenTypes.grow(capacity, size);
+			nameIds.grow(capacity, size);
+			lineNumbers.grow(capacity, size);
+			bindings.grow(capacity, size);
+		}
+		tokenTypes.set(size, tokenType.ordinal());
+		nameIds.set(size, nameId);
+		lineNumbers.set(size, lineNumber);
+		bindings.set(size, NOT_BOUND);
+		size++;
+	}
+
+	/*
+	 * Returns the capacity to grow a full buffer of the given capacity to, which is at most
+	 * MAX_TOKENS.
+	 */
+	private static int getGrownCapacity(int capacity) {
+		if (capacity >= MAX_TOKENS) {
+			throw new IllegalStateException("A file can't have more than " + MAX_TOKENS
+					+ " tokens");
+		}
+		try {
+			return Math.min(Math.multiplyExact(capacity, GROWTH_FACTOR), MAX_TOKENS);
+		} catch (ArithmeticException e) {
+			return MAX_TOKENS;
+		}
+	}
+
+	private IntColumn createColumn() {
+		if (isOffHeap) {
+			return new OffHeapIntColumn(INITIAL_CAPACITY);
+		}
+		return new HeapIntColumn(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * A column of ints of a token buffer, indexed by the index of the token.
+	 * @author Alon and Michal
+	 *
+	 */
+	private abstract static class IntColumn {
+
+		/**
+		 * @param index Index of a token in the column
+		 * @return The int of the token
+		 */
+		abstract int get(int index);
+
+		/**
+		 * @param index Index of a token in the column
+		 * @param value The int of the token
+		 */
+		abstract void set(int index, int value);
+
+		/**
+		 * Makes room for the given number of tokens, keeping the ints of the tokens so far.
+		 * @param capacity Number of tokens the column should hold
+		 * @param size Number of tokens in the column so far
+		 */
+		abstract void grow(int capacity, int size);
+
+		/**
+		 * Gives back the memory of the column. The column can't be used afterwards.
+		 */
+		abstract void release();
+	}
+
+	/**
+	 * A column held by an array on the heap.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static final class HeapIntColumn extends IntColumn {
+
+		private int[] ints;
+
+		HeapIntColumn(int capacity) {
+			ints = new int[capacity];
+		}
+
+		@Override
+		int get(int index) {
+			return ints[index];
+		}
+
+		@Override
+		void set(int index, int value) {
+			ints[index] = value;
+		}
+
+		@Override
+		void grow(int capacity, int size) {
+			ints = Arrays.copyOf(ints, capacity);
+		}
+
+		@Override
+		void release() {
+			ints = null;
+		}
+	}
+
+	/**
+	 * A column held by segments of OffHeapMemory.SEGMENT_INTS ints each, so a token's int is
+	 * found by the high bits of its index, which pick the segment, and the low bits, which pick
+	 * the int within it. Growing the column only adds segments, and never copies the ints.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static final class OffHeapIntColumn extends IntColumn {
+
+		private static final int SEGMENT_SHIFT = 
+				Integer.numberOfTrailingZeros(OffHeapMemory.SEGMENT_INTS);
+		private static final int SEGMENT_MASK = OffHeapMemory.SEGMENT_INTS - 1;
+		private static final int INT_SHIFT = Integer.numberOfTrailingZeros(Integer.BYTES);
+
+		private ByteBuffer[] segments;
+		private int segmentCount;
+
+		OffHeapIntColumn(int capacity) {
+			segments = new ByteBuffer[1];
+			segmentCount = 0;
+			grow(capacity, 0);
+		}
+
+		@Override
+		int get(int index) {
+			return segments[index >>> SEGMENT_SHIFT].getInt((index & SEGMENT_MASK) << INT_SHIFT);
+		}
+
+		@Override
+		void set(int index, int value) {
+			segments[index >>> SEGMENT_SHIFT].putInt((index & SEGMENT_MASK) << INT_SHIFT, value);
+		}
+
+		@Override
+		void grow(int capacity, int size) {
+			int neededSegments = (int) (((long) capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+			if (neededSegments > segments.length) {
+				segments = Arrays.copyOf(segments, Math.max(neededSegments,
+						segments.length * GROWTH_FACTOR));
+			}
+			while (segmentCount < neededSegments) {
+				segments[segmentCount++] = OffHeapMemory.allocateSegment();
+			}
+		}
+
+		@Override
+		void release() {
+			for (int i = 0; i < segmentCount; i++) {
+				OffHeapMemory.releaseSegment(segments[i]);
+			}
+			segments = null;
+			segmentCount = 0;
+		}
+	}
+}
@@ -1,15 +1,13 @@
 package oop.ex6.line;
 
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * This class receives a String and parses it into "tokens" - each representing
- * an accepted section of code. The token list is then loaded into a newly created 
- * line object
+ * an accepted section of code. The tokens are stored in the file's TokenBuffer, and a newly
+ * created line object views them
  * @author Alon and Michal
  *
  */
@@ -22,92 +20,190 @@ public class Tokenizer {
 	
 	
 	/**
-	 * TokenType enum. Each holds the regex pattern of a keyword in the code.
-	 * @author alonav11
+	 * The ways in which a line can be split into tokens. DFA uses the hand written DfaLexer,
+	 * REGEX uses the original regex alternation of all token patterns, and CROSS_CHECK runs
+	 * both and makes sure they agree on every line.
+	 * @author Alon and Michal
 	 *
 	 */
+	public static enum LexerMode {
+		DFA, REGEX, CROSS_CHECK;
+	}
 
-	
-	private String tokenPatterns;
+	private static final Pattern TOKEN_PATTERN = Pattern.compile(getPatternsString());
+
+	private final LexerMode lexerMode;
+	private final boolean isOffHeap;
+	private final DfaLexer dfaLexer;
+	private TokenBuffer tokenBuffer;
 	
 	/**
-	 * Constructor. Creates a big regex string out of all the existing token type.
+	 * Constructor. Uses the DFA lexer.
 	 */
 	public Tokenizer(){
-		tokenPatterns = getPatternsString();
+		this(LexerMode.DFA);
 	}
 	
 	/**
-	 * Represents a single keyword in a line. Holds the type
-	 * of token, and in case of a name of a variable\method, holds the actual name as well.
-	 * @author alonav11
-	 *
+	 * Constructor
+	 * @param lexerMode The way in which lines will be split into tokens.
 	 */
-	public class Token {
-		private final TokenType tokenType;
-		private String name = null;
-		
-		
-		/**
-		 * Constructor
-		 * @param tokenType Type of token
-		 */
-		public Token(TokenType tokenType){
-			this.tokenType = tokenType;
-			
-		}
-		
-		
-		/**
-		 * Constructor with token name
-		 * @param type Type of token
-		 * @param name Name of method/variable
-		 */
-		public Token(TokenType tokenType, String name) {
-			this.tokenType = tokenType;
-			this.name = name;
-		}
-		
-		/**
-		 * @return TokenType
-		 */
-		public TokenType getTokenType() {
-
-			return tokenType;
-		}
-		
-		/**
-		 * @return Name of method\variable
-		 */
-		public String getName() {
-			return name;
+	public Tokenizer(LexerMode lexerMode){
+		this(lexerMode, false);
+	}
+	
+	/**
+	 * Constructor
+	 * @param lexerMode The way in which lines will be split into tokens.
+	 * @param isOffHeap True iff the tokens should be kept outside of the heap (see TokenBuffer),
+	 * in which case releaseTokens is to be called once the lines are no longer needed.
+	 */
+	public Tokenizer(LexerMode lexerMode, boolean isOffHeap){
+		this.lexerMode = lexerMode;
+		this.isOffHeap = isOffHeap;
+		dfaLexer = new DfaLexer();
+		tokenBuffer = new TokenBuffer(new NameInterner(), isOffHeap);
+	}
+	
+	/**
+	 * This method receives the text of a line in a file, adds the tokens that appear in
+	 * that string to the file's token buffer and creates a line object viewing these tokens.
+	 * @param lineContent Line in file to tokenize
+	 * @param lineNumber Number of the line being created
+	 * @return Line object over the line's tokens, with the line number.
+	 * @throws ParseException If the type of the line can't be determined
+	 */
+	public Line tokenize(CharSequence lineContent, int lineNumber) throws ParseException {
+		Line line = tokenizeLine(lineContent, lineNumber);
+		if(line.getTypeError() != null){
+			throw new ParseException(line.getTypeError().getMessage(), lineNumber);
 		}
-		
+		return line;
 	}
 	
 	/**
-	 * This method receives a string from the line in a file
-	 * and creates a line object loaded with a list of tokens that appear in that string.
+	 * Like tokenize, but returns the line even if its type can't be determined, in which case
+	 * the line holds the reason (see Line.getTypeError).
 	 * @param lineContent Line in file to tokenize
 	 * @param lineNumber Number of the line being created
-	 * @return Line object loaded with the token list and line number.
-	 * @throws ParseException 
+	 * @return Line object over the line's tokens, with the line number.
 	 */
-	public Line tokenize(String lineContent, int lineNumber) throws ParseException {
-		
-		List<Token> tokenList = new ArrayList<Token>();
-		
-		Pattern pattern = Pattern.compile(tokenPatterns);
-		Matcher matcher = pattern.matcher(lineContent);
+	public Line tokenizeLine(CharSequence lineContent, int lineNumber) {
+		return tokenizeLine(lineContent, lineNumber, false);
+	}
+	
+	/**
+	 * Like tokenizeLine, for a line that the source may already know to be a comment (see
+	 * LineSource.isLineComment). The DFA lexer then only adds the comment token of such a line,
+	 * as nothing after it is ever looked at.
+	 * @param lineContent Line in file to tokenize
+	 * @param lineNumber Number of the line being created
+	 * @param isComment True iff the line starts with a comment
+	 * @return Line object over the line's tokens, with the line number.
+	 */
+	public Line tokenizeLine(CharSequence lineContent, int lineNumber, boolean isComment) {
+		int firstTokenIndex = tokenBuffer.size();
+		switch(lexerMode){
+		case REGEX:
+			tokenizeWithRegex(lineContent, lineNumber);
+			break;
+		case CROSS_CHECK:
+			tokenizeWithDfa(lineContent, lineNumber);
+			int regexFirstTokenIndex = tokenBuffer.size();
+			tokenizeWithRegex(lineContent, lineNumber);
+			crossCheck(firstTokenIndex, regexFirstTokenIndex, lineNumber);
+			tokenBuffer.truncate(regexFirstTokenIndex);
+			break;
+		default:
+			if(isComment){
+				tokenBuffer.add(TokenType.COMMENTDECLARE, lineNumber);
+			}else{
+				tokenizeWithDfa(lineContent, lineNumber);
+			}
+			break;
+		}
+		return new Line(lineNumber, tokenBuffer, firstTokenIndex, 
+				                                  tokenBuffer.size() - firstTokenIndex);
+	}
+	
+	/**
+	 * @return The buffer holding the tokens of all the lines tokenized so far
+	 */
+	public TokenBuffer getTokenBuffer(){
+		return tokenBuffer;
+	}
+	
+	/**
+	 * Starts storing the tokens of the following lines in a new buffer, so that the buffer of the
+	 * lines tokenized so far can be released once these lines are no longer needed. Names keep
+	 * the same ids in the new buffer.
+	 */
+	public void startNewTokenBuffer(){
+		tokenBuffer = new TokenBuffer(tokenBuffer.getNameInterner(), isOffHeap);
+	}
+	
+	/**
+	 * Drops the tokens of all the lines tokenized so far, once these lines are no longer needed,
+	 * and stores the tokens of the following lines in their place. The lines that viewed the
+	 * dropped tokens keep only their number, scope and type.
+	 */
+	public void discardTokens(){
+		tokenBuffer.truncate(0);
+	}
+	
+	/**
+	 * Gives back the memory of the tokens of the lines tokenized since the last new buffer, once
+	 * these lines are no longer needed. The tokenizer can't be used afterwards.
+	 */
+	public void releaseTokens(){
+		tokenBuffer.release();
+	}
+	
+	/**
+	 * Frees the memory outside of the heap that the current thread keeps for the tokens of the
+	 * next files (see OffHeapMemory), once the thread is done verifying files.
+	 */
+	public static void releaseKeptMemory(){
+		OffHeapMemory.releaseKeptSegments();
+	}
+	
+	/*
+	 * Splits the line into tokens using the DfaLexer, which finds exactly the same tokens as
+	 * the regex pattern without backtracking.
+	 */
+	private void tokenizeWithDfa(CharSequence lineContent, int lineNumber){
+		int position = 0;
+		TokenType tokenType;
+		int tokenEnd;
+		while(position < lineContent.length()){
+			tokenType = dfaLexer.match(lineContent, position);
+			tokenEnd = dfaLexer.getMatchEnd();
+			if(tokenType == TokenType.VARNAME){
+				tokenBuffer.add(tokenType, lineContent, position, tokenEnd, lineNumber);
+			}else if(tokenType == TokenType.METHODNAME){
+				tokenBuffer.add(tokenType, lineContent, position,
+						DfaLexer.getMethodNameEnd(lineContent, position, tokenEnd), lineNumber);
+			}else if(tokenType != null && tokenType != TokenType.WHITESPACE){
+				tokenBuffer.add(tokenType, lineNumber);
+			}
+			position = tokenEnd;
+		}
+	}
+	
+	/*
+	 * Splits the line into tokens using the regex pattern made out of all the token types. 
+	 */
+	private void tokenizeWithRegex(CharSequence lineContent, int lineNumber){
+		Matcher matcher = TOKEN_PATTERN.matcher(lineContent);
 		while(matcher.find()){
 			for(TokenType tokenType:TokenType.values()){
-				// Adding to the token list all tokens except the whitespace token.
+				// Adding to the token buffer all tokens except the whitespace token.
 				// If it's a method or variable name, adding the name to the token, excluding the
 				// white spaces and parenthesis.
 				 if(matcher.group(tokenType.name()) != null && tokenType != TokenType.WHITESPACE){
 					
 					if(tokenType == TokenType.VARNAME){
-						tokenList.add(new Token(tokenType,matcher.group(tokenType.name())));
+						tokenBuffer.add(tokenType, matcher.group(tokenType.name()), lineNumber);
 					}else if(tokenType == TokenType.METHODNAME){
 						// Getting the index of the end of the actual method name from the full METHODNAME.
 						int endOfName = matcher.group(tokenType.name()).indexOf(END_OF_NAME_FIRST_OPTION);
@@ -115,16 +211,33 @@ public class Tokenizer {
 							endOfName = matcher.group(tokenType.name()).indexOf(END_OF_NAME_SECOND_OPTION);
 						}
 						
-						tokenList.add(new Token(tokenType,matcher.group(tokenType.name())
-								                                             .substring(0, endOfName)));
+						tokenBuffer.add(tokenType, matcher.group(tokenType.name())
+								                                 .substring(0, endOfName), lineNumber);
 					}else{
-						tokenList.add(new Token(tokenType));
+						tokenBuffer.add(tokenType, lineNumber);
 					}
 				}
 			}
 		}
-		
-		return new Line(lineNumber,tokenList);
+	}
+	
+	/*
+	 * Makes sure that the tokens created by the two lexers, which were placed one after the other
+	 * at the end of the buffer, are identical.
+	 */
+	private void crossCheck(int dfaFirstTokenIndex, int regexFirstTokenIndex, int lineNumber){
+		int tokenCount = regexFirstTokenIndex - dfaFirstTokenIndex;
+		boolean isSame = tokenBuffer.size() - regexFirstTokenIndex == tokenCount;
+		for(int i = 0; isSame && i < tokenCount; i++){
+			isSame = tokenBuffer.getTokenType(dfaFirstTokenIndex + i) == 
+					                       tokenBuffer.getTokenType(regexFirstTokenIndex + i) &&
+					 tokenBuffer.getNameId(dfaFirstTokenIndex + i) == 
+					                          tokenBuffer.getNameId(regexFirstTokenIndex + i);
+		}
+		if(!isSame){
+			throw new IllegalStateException("Tokenizer: DFA and regex lexers disagree on line "
+																					+ lineNumber);
+		}
 	}
 
 	
@@ -134,7 +247,7 @@ public class Tokenizer {
 	 * capturing group is separated by "|", making the whole string one long pattern that checks
 	 * to see which tokens (=capturing groups) fit a whole line of text.
 	 */
-	private String getPatternsString(){
+	private static String getPatternsString(){
 		StringBuffer tokenPatterns = new StringBuffer();
 		for(TokenType tokenType: TokenType.values()){
 			tokenPatterns.append(String.format("|(?<%s>%s)",tokenType.name(), tokenType.pattern));		
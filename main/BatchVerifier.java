@@ -0,0 +1,201 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import oop.ex6.line.Tokenizer;
+
+/**
+ * Verifies many source files on a fixed pool of threads. Each file is verified by its own task,
+ * which creates its own tables and validators, so files never share any state.
+ * The verdicts are printed in the order the files were given, one line per file, followed by a
+ * summary line. Only a bounded number of files is queued ahead of the file being printed, so
+ * any number of files can be verified without keeping all of their verdicts.
+ * @author Alon and Michal
+ *
+ */
+class BatchVerifier {
+
+	private static final String LIST_FILE_PREFIX = "@";
+	private static final String SOURCE_FILE_SUFFIX = ".sjava";
+	private static final int QUEUED_FILES_PER_THREAD = 16;
+
+	private final SourceVerifier verifier;
+	private final int threads;
+	private int legalCount;
+	private int illegalCount;
+	private int ioErrorCount;
+	private int overBudgetCount;
+
+	/**
+	 * Constructor
+	 * @param verifier The verifier to verify each file with
+	 * @param threads Number of files to verify at once
+	 */
+	BatchVerifier(SourceVerifier verifier, int threads) {
+		this.verifier = verifier;
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the source files given by the arguments. An argument may be a source file, a
+	 * directory (whose .sjava files are all verified, in the order of their paths), or @ followed
+	 * by the path of a text file that lists source files and directories, one per line.
+	 * @param args The arguments
+	 * @return Paths of the source files, in order
+	 * @throws IOException If a directory or list file couldn't be read
+	 */
+	static List<Path> collectFiles(List<String> args) throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		for (String arg : args) {
+			if (arg.startsWith(LIST_FILE_PREFIX)) {
+				for (String entry : Files.readAllLines(Paths.get(
+						arg.substring(LIST_FILE_PREFIX.length())))) {
+					if (!entry.trim().isEmpty()) {
+						addFiles(Paths.get(entry.trim()), files);
+					}
+				}
+			} else {
+				addFiles(Paths.get(arg), files);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @param args The arguments given to the verifier
+	 * @return True iff the arguments name anything but a single source file
+	 */
+	static boolean isBatch(List<String> args) {
+		return args.size() != 1 || args.get(0).startsWith(LIST_FILE_PREFIX)
+				|| Files.isDirectory(Paths.get(args.get(0)));
+	}
+
+	/**
+	 * Verifies all the given files, and prints their verdicts and a summary.
+	 * @param files Paths of the source files
+	 * @param out Stream to print the verdicts to
+	 * @param err Stream to print the explanations of errors to
+	 */
+	void verifyAll(List<Path> files, PrintStream out, PrintStream err) {
+		ExecutorService pool = newWorkerPool(threads);
+		Queue<Future<VerificationResult>> pending = new ArrayDeque<Future<VerificationResult>>();
+		int maxPending = threads * QUEUED_FILES_PER_THREAD;
+		int nextToSubmit = 0;
+		try {
+			for (Path file : files) {
+				while (nextToSubmit < files.size() && pending.size() < maxPending) {
+					pending.add(pool.submit(new VerificationTask(files.get(nextToSubmit))));
+					nextToSubmit++;
+				}
+				report(file, getResult(pending.poll()), out, err);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		out.println("Verified " + files.size() + " files: " + legalCount + " legal, "
+				+ illegalCount + " illegal, " + ioErrorCount + " IO errors"
+				+ (overBudgetCount > 0 ? ", " + overBudgetCount + " over budget" : ""));
+	}
+
+	/**
+	 * Creates a fixed pool of threads to verify files on. Every thread frees the memory that it
+	 * keeps for the tokens of the next files (see Tokenizer.releaseKeptMemory) once the pool is
+	 * shut down.
+	 * @param threads Number of threads
+	 * @return The pool
+	 */
+	static ExecutorService newWorkerPool(int threads) {
+		ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		return Executors.newFixedThreadPool(threads, task -> defaultFactory.newThread(() -> {
+			try {
+				task.run();
+			} finally {
+				Tokenizer.releaseKeptMemory();
+			}
+		}));
+	}
+
+	private static void addFiles(Path path, List<Path> files) throws IOException {
+		if (!Files.isDirectory(path)) {
+			files.add(path);
+			return;
+		}
+		try (Stream<Path> walk = Files.walk(path)) {
+			List<Path> sources = walk.filter(p -> p.toString().endsWith(SOURCE_FILE_SUFFIX)
+					&& Files.isRegularFile(p)).collect(Collectors.toList());
+			Collections.sort(sources);
+			files.addAll(sources);
+		}
+	}
+
+	private static VerificationResult getResult(Future<VerificationResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return VerificationResult.ioError();
+		} catch (ExecutionException e) {
+			// The verifier failed on the file itself rather than finding an error in it.
+			return VerificationResult.illegal("Verifier error: " + e.getCause());
+		}
+	}
+
+	private void report(Path file, VerificationResult result, PrintStream out, PrintStream err) {
+		out.println(file + " " + result.getCode());
+		if (result.getMessage() != null) {
+			// Every line of the explanation (there is one for every error collected) is prefixed.
+			String prefix = file + ": ";
+			err.println(prefix + result.getMessage().replace("\n", "\n" + prefix));
+		}
+		switch (result.getCode()) {
+		case VerificationResult.LEGAL_CODE_MARKER:
+			legalCount++;
+			break;
+		case VerificationResult.ILLEGAL_CODE_MARKER:
+			illegalCount++;
+			break;
+		case VerificationResult.BUDGET_EXCEEDED_MARK:
+			overBudgetCount++;
+			break;
+		default:
+			ioErrorCount++;
+			break;
+		}
+	}
+
+	/**
+	 * Verifies a single file of the batch.
+	 * @author Alon and Michal
+	 *
+	 */
+	private class VerificationTask implements Callable<VerificationResult> {
+
+		private final Path file;
+
+		private VerificationTask(Path file) {
+			this.file = file;
+		}
+
+		@Override
+		public VerificationResult call() {
+			return verifier.verify(file);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when a file being read breaks its budget (see FileBudget). As it is thrown
+ * by reading the lines of the file, it is an IOException, and the verification of the file stops
+ * wherever it was, the way it does when the file can't be read.
+ * @author Alon and Michal
+ *
+ */
+class BudgetExceededException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor
+	 * @param message Explanation of the way the budget was broken
+	 */
+	BudgetExceededException(String message) {
+		super(message);
+	}
+}
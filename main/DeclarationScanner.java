@@ -0,0 +1,50 @@
+package oop.ex6.main;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.Tokenizer;
+import oop.ex6.tables.TableAndScopeMaker;
+import oop.ex6.validator.SyntaxValidator;
+
+/**
+ * A quick pass over a file, ahead of its verification, that adds its declarations to the tables:
+ * the signatures of its methods and its global variables, along with the global assignments.
+ * Only the lines of the global scope (including the method declaration lines) are tokenized; the
+ * bodies of the methods are skipped by counting brackets, as in StructureScanner, whose checks
+ * every line still goes through. With the declarations known, the lines of the methods can be
+ * validated as soon as they are read (see StreamingVerifier). The scan reads the whole file before
+ * any line is validated, and the error it finds may lie below the first error of the file, so it
+ * only tells that the file is illegal, and the error to report is left to the batch mode.
+ * @author Alon and Michal
+ *
+ */
+class DeclarationScanner extends StructureScanner {
+
+	private final Tokenizer tokenizer;
+	private final SyntaxValidator syntaxValidator;
+	private final TableAndScopeMaker tableMaker;
+
+	/**
+	 * Constructor
+	 * @param tokenizer The tokenizer to split the lines of the global scope with
+	 * @param tableMaker The tables to add the declarations to
+	 */
+	DeclarationScanner(Tokenizer tokenizer, TableAndScopeMaker tableMaker) {
+		this.tokenizer = tokenizer;
+		this.tableMaker = tableMaker;
+		syntaxValidator = new SyntaxValidator();
+	}
+
+	/*
+	 * Tokenizes and syntactically validates the line, and adds its declarations to the tables.
+	 */
+	@Override
+	ErrorCode scanGlobalLine(CharSequence lineContent, int lineNumber) {
+		Line line = tokenizer.tokenizeLine(lineContent, lineNumber);
+		ErrorCode error = syntaxValidator.check(line);
+		if (error != null) {
+			return error;
+		}
+		return tableMaker.addDeclaration(line);
+	}
+}
@@ -0,0 +1,101 @@
+package oop.ex6.main;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.validator.LineErrorListener;
+
+/**
+ * Collects the errors found in a single file, when the file is verified to its end rather than up
+ * to its first error, up to a given number of errors. Every error is described along with the
+ * number of the line it was found in, and the errors are reported in the order of their lines.
+ * @author Alon and Michal
+ *
+ */
+class ErrorCollector implements LineErrorListener {
+
+	static final int DEFAULT_MAX_ERRORS = 100;
+
+	private static final String LINE_PREFIX = "Line ";
+	private static final String LINE_SEPARATOR = ": ";
+	private static final String ERROR_SEPARATOR = "\n";
+
+	private final int maxErrors;
+	private final List<LineError> errors;
+
+	/**
+	 * Constructor
+	 * @param maxErrors Number of errors after which the verification stops
+	 */
+	ErrorCollector(int maxErrors) {
+		this.maxErrors = maxErrors;
+		errors = new ArrayList<LineError>();
+	}
+
+	@Override
+	public boolean errorFound(Line line, ErrorCode error) {
+		return errorFound(line.getLineNumber(), error);
+	}
+
+	/**
+	 * Adds an error to the collected errors.
+	 * @param lineNumber Number of the line the error was found in
+	 * @param error The error
+	 * @return True iff the verification should go on
+	 */
+	boolean errorFound(int lineNumber, ErrorCode error) {
+		errors.add(new LineError(lineNumber, error));
+		return !isFull();
+	}
+
+	/**
+	 * @return True iff no more errors should be collected
+	 */
+	boolean isFull() {
+		return errors.size() >= maxErrors;
+	}
+
+	/**
+	 * @return The verdict on the file: legal if no errors were found, and otherwise illegal, with
+	 * the descriptions of all the errors found, one per line
+	 */
+	VerificationResult getResult() {
+		if (errors.isEmpty()) {
+			return VerificationResult.legal();
+		}
+		// The errors found while the lines were read come before the semantic errors.
+		errors.sort(Comparator.comparingInt(error -> error.lineNumber));
+		StringBuilder message = new StringBuilder();
+		for (LineError error : errors) {
+			if (message.length() > 0) {
+				message.append(ERROR_SEPARATOR);
+			}
+			message.append(LINE_PREFIX).append(error.lineNumber).append(LINE_SEPARATOR)
+					.append(error.error.describe());
+		}
+		if (isFull()) {
+			message.append(ERROR_SEPARATOR).append("Stopped after ").append(errors.size())
+					.append(" errors");
+		}
+		return VerificationResult.illegal(message.toString());
+	}
+
+	/**
+	 * An error, and the number of the line it was found in.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static class LineError {
+
+		private final int lineNumber;
+		private final ErrorCode error;
+
+		private LineError(int lineNumber, ErrorCode error) {
+			this.lineNumber = lineNumber;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import oop.ex6.line.LineSource;
+import oop.ex6.line.LineTooLongException;
+
+/**
+ * The budget of the verification of a single file: the number of characters each of its lines may
+ * hold, and the wall clock time that its verification may take. Both are checked as the lines of
+ * the file are read, through the line source returned by limit, which throws a
+ * BudgetExceededException on reading a line that is too long, or a line read after the deadline.
+ * The source is told the maximal length too, so a source that scans for the end of a line (see
+ * MappedSourceReader) stops scanning a line as soon as it is too long, rather than reading it all.
+ * As every mode works line by line between the reads, no line is started after the deadline, and
+ * as the lexer takes linear time in the length of a line (see DfaLexer), a line is never much
+ * slower than its length allows. Work that is done after all the lines were read, such as the
+ * semantic validation of the batch mode, checks the deadline itself through checkTime.
+ * @author Alon and Michal
+ *
+ */
+class FileBudget {
+
+	private static final int NO_LIMIT = 0;
+	private static final int FIRST_LINE_NUMBER = 1;
+
+	private final int maxLineLength;
+	private final long timeBudget;
+	private final long deadline;
+
+	/**
+	 * Constructor. The time of the verification is counted from the creation of the budget.
+	 * @param maxLineLength Number of characters a line may hold, or 0 for no limit
+	 * @param timeBudget Number of milliseconds the verification may take, or 0 for no limit
+	 */
+	FileBudget(int maxLineLength, long timeBudget) {
+		this.maxLineLength = maxLineLength;
+		this.timeBudget = timeBudget;
+		deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+	}
+
+	/**
+	 * @param maxLineLength Number of characters a line may hold, or 0
+	 * @param timeBudget Number of milliseconds the verification may take, or 0
+	 * @return True iff the given limits make a budget at all
+	 */
+	static boolean isLimited(int maxLineLength, long timeBudget) {
+		return maxLineLength != NO_LIMIT || timeBudget != NO_LIMIT;
+	}
+
+	/**
+	 * @return True iff the time of the verification is limited
+	 */
+	boolean hasDeadline() {
+		return timeBudget != NO_LIMIT;
+	}
+
+	/**
+	 * Checks that the deadline of the verification hasn't passed yet.
+	 * @throws BudgetExceededException If it has
+	 */
+	void checkTime() throws BudgetExceededException {
+		if (timeBudget != NO_LIMIT && System.nanoTime() - deadline > 0) {
+			throw new BudgetExceededException("Verification took longer than " + timeBudget
+					+ " ms");
+		}
+	}
+
+	/**
+	 * @param source The lines of the file
+	 * @return The same lines, held to the budget
+	 */
+	LineSource limit(LineSource source) {
+		if (maxLineLength != NO_LIMIT) {
+			source.limitLineLength(maxLineLength);
+		}
+		return new LimitedLineSource(source);
+	}
+
+	/**
+	 * A line source that checks the budget on every line it reads from another source.
+	 * @author Alon and Michal
+	 *
+	 */
+	private class LimitedLineSource implements LineSource {
+
+		private final LineSource source;
+		private int lineNumber;
+
+		private LimitedLineSource(LineSource source) {
+			this.source = source;
+			lineNumber = FIRST_LINE_NUMBER - 1;
+		}
+
+		@Override
+		public boolean nextLine() throws IOException {
+			checkTime();
+			try {
+				if (!source.nextLine()) {
+					return false;
+				}
+			} catch (LineTooLongException e) {
+				throw tooLong(lineNumber + 1);
+			}
+			lineNumber++;
+			if (maxLineLength != NO_LIMIT && source.getLine().length() > maxLineLength) {
+				throw tooLong(lineNumber);
+			}
+			return true;
+		}
+
+		private BudgetExceededException tooLong(int tooLongLineNumber) {
+			return new BudgetExceededException("Line " + tooLongLineNumber + " is longer than "
+					+ maxLineLength + " characters");
+		}
+
+		@Override
+		public CharSequence getLine() {
+			return source.getLine();
+		}
+
+		@Override
+		public boolean isLineBlank() {
+			return source.isLineBlank();
+		}
+
+		@Override
+		public boolean isLineComment() {
+			return source.isLineComment();
+		}
+
+		@Override
+		public void close() throws IOException {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package oop.ex6.main;
+
+import java.util.Arrays;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.Tokenizer;
+import oop.ex6.tables.TableAndScopeMaker;
+import oop.ex6.validator.SemanticsValidator;
+import oop.ex6.validator.SyntaxValidator;
+
+/**
+ * Verifies a file like the batch mode, without keeping its lines and tokens from the building of
+ * the tables until their semantic validation. The file is read twice: on the first reading every
+ * line is tokenized, syntactically validated and added to the tables, and only the id of its scope
+ * is kept, in a single int array, after which its tokens are dropped. Once all the lines were
+ * added, the file is read again, and every line is tokenized again, given the scope it was found
+ * in, and semantically validated, its tokens dropped once the next line is validated.
+ * The lines thus cost four bytes each instead of a line object and the tokens of the line, for
+ * twice the work of the tokenizer. The verdict is the same as in the batch mode.
+ * @author Alon and Michal
+ *
+ */
+class LowMemoryVerifier {
+
+	private static final int INITIAL_LINES = 1024;
+	private static final int GROWTH_FACTOR = 2;
+
+	private final Tokenizer tokenizer;
+	private final SyntaxValidator syntaxValidator;
+	private final TableAndScopeMaker tableMaker;
+	private final SemanticsValidator semanticsValidator;
+	private int[] lineScopes;
+	private int lineCount;
+	private int validatedLineCount;
+	private Line previousLine;
+
+	/**
+	 * Constructor
+	 * @param tokenizer The tokenizer to split lines with
+	 */
+	LowMemoryVerifier(Tokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+		syntaxValidator = new SyntaxValidator();
+		tableMaker = new TableAndScopeMaker();
+		// All the methods are in the tables before the first line is validated.
+		semanticsValidator = new SemanticsValidator(tableMaker.getVariableTable(),
+				tableMaker.getMethodTable(), false);
+		lineScopes = new int[INITIAL_LINES];
+		lineCount = 0;
+		validatedLineCount = 0;
+		previousLine = null;
+	}
+
+	/**
+	 * Adds the next (non empty) line of the file to the tables, on the first reading of the file.
+	 * @param lineContent Text of the line
+	 * @param lineNumber Number of the line
+	 * @param isComment True iff the line is known to start with a comment
+	 * @return The error found, or null if there is none so far
+	 */
+	ErrorCode addLine(CharSequence lineContent, int lineNumber, boolean isComment) {
+		Line line = tokenizer.tokenizeLine(lineContent, lineNumber, isComment);
+		ErrorCode error = syntaxValidator.check(line);
+		if (error == null) {
+			error = tableMaker.addLine(line);
+		}
+		if (error != null) {
+			return error;
+		}
+		if (lineCount == lineScopes.length) {
+			lineScopes = Arrays.copyOf(lineScopes, lineCount * GROWTH_FACTOR);
+		}
+		lineScopes[lineCount++] = line.getScope();
+		tokenizer.discardTokens();
+		return null;
+	}
+
+	/**
+	 * Semantically validates the next (non empty) line of the file, on the second reading of the
+	 * file, once all of its lines were added.
+	 * @param lineContent Text of the line
+	 * @param lineNumber Number of the line
+	 * @param isComment True iff the line is known to start with a comment
+	 * @return The error found, or null if there is none so far
+	 */
+	ErrorCode validateLine(CharSequence lineContent, int lineNumber, boolean isComment) {
+		// Only the type of the previous line is still needed, which the line object keeps.
+		tokenizer.discardTokens();
+		Line line = tokenizer.tokenizeLine(lineContent, lineNumber, isComment);
+		line.setScope(lineScopes[validatedLineCount++]);
+		ErrorCode error = semanticsValidator.checkNextLine(line, previousLine);
+		previousLine = line;
+		return error;
+	}
+
+	/**
+	 * Completes the verification once all the lines of the file were validated, by checking that
+	 * all brackets were closed.
+	 * @return The error found, or null if the file is valid
+	 */
+	ErrorCode finish() {
+		if (lineCount > 0 && lineScopes[lineCount - 1] != TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.UNCLOSED_BRACKETS;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,180 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.MappedSourceReader;
+import oop.ex6.line.NameInterner;
+import oop.ex6.line.Tokenizer;
+import oop.ex6.tables.TableAndScopeMaker;
+import oop.ex6.validator.SyntaxValidator;
+
+/**
+ * Tokenizes and syntactically validates the lines of a large file on several threads.
+ * The file is split into chunks of whole lines, and each chunk is read, tokenized and validated
+ * by its own task, with its own tokenizer and name interner. Lines are numbered relative to the
+ * start of their chunk, since the number of non empty lines before the chunk isn't known yet.
+ * The chunks are then fed in order, on the calling thread, into the tables: the names of each
+ * chunk are moved to a single interner and its lines are renumbered. A chunk stops at its first
+ * bad line, and the error is only reported once all the lines before it were added to the tables,
+ * so the reported error is always the one the sequential verifier would report.
+ * The chunks of all the files read by a front end run on a single pool, created with it. Its
+ * threads are daemons, and end once they were idle for a while.
+ * @author Alon and Michal
+ *
+ */
+class ParallelFrontEnd {
+
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int STARTING_LINE_NUMBER = 1;
+
+	private final Tokenizer.LexerMode lexerMode;
+	private final int parallelism;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor
+	 * @param lexerMode The way lines are split into tokens
+	 * @param parallelism Number of threads to use
+	 */
+	ParallelFrontEnd(Tokenizer.LexerMode lexerMode, int parallelism) {
+		this.lexerMode = lexerMode;
+		this.parallelism = parallelism;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Reads, tokenizes and syntactically validates the lines of the file, and adds them to
+	 * the tables, up to the first bad line.
+	 * @param file Path of the source file
+	 * @param tableMaker The tables to add the lines to
+	 * @param lines The list to add the (non empty) lines of the file to, in order
+	 * @return The error of the first bad line, or null if there is none
+	 * @throws IOException
+	 */
+	ErrorCode readLines(Path file, TableAndScopeMaker tableMaker, List<Line> lines) 
+			                                                             throws IOException {
+		List<Chunk> chunks = splitToChunks(file);
+		List<Future<Chunk>> results = pool.invokeAll(chunks);
+
+		NameInterner names = new NameInterner();
+		int lineOffset = 0;
+		for (Future<Chunk> result : results) {
+			Chunk chunk = getResult(result);
+			chunk.tokenizer.getTokenBuffer().moveToInterner(names);
+			chunk.tokenizer.getTokenBuffer().offsetLineNumbers(lineOffset);
+			for (Line line : chunk.lines) {
+				line.offsetLineNumber(lineOffset);
+				ErrorCode error = tableMaker.addLine(line);
+				if (error != null) {
+					return error;
+				}
+				lines.add(line);
+			}
+			if (chunk.ioFailure != null) {
+				throw chunk.ioFailure;
+			}
+			if (chunk.error != null) {
+				return chunk.error;
+			}
+			lineOffset += chunk.lines.size();
+		}
+		return null;
+	}
+
+	/*
+	 * Splits the file into chunks that start at the beginning of a line.
+	 */
+	private List<Chunk> splitToChunks(Path file) throws IOException {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			long chunkCount = Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD,
+					fileSize / MIN_CHUNK_SIZE));
+			long chunkStart = 0;
+			for (long i = 1; i <= chunkCount; i++) {
+				long chunkEnd = i == chunkCount ? fileSize
+						: MappedSourceReader.findLineStart(channel, fileSize * i / chunkCount);
+				if (chunkEnd > chunkStart) {
+					chunks.add(new Chunk(file, chunkStart, chunkEnd));
+					chunkStart = chunkEnd;
+				}
+			}
+		}
+		if (chunks.isEmpty()) {
+			chunks.add(new Chunk(file, 0, 0));
+		}
+		return chunks;
+	}
+
+	private static Chunk getResult(Future<Chunk> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading the file", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * A range of lines of the file, and the result of tokenizing and validating it.
+	 * @author Alon and Michal
+	 *
+	 */
+	private class Chunk implements Callable<Chunk> {
+
+		private final Path file;
+		private final long start;
+		private final long end;
+		private final Tokenizer tokenizer;
+		private final List<Line> lines;
+		private ErrorCode error;
+		private IOException ioFailure;
+
+		private Chunk(Path file, long start, long end) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			tokenizer = new Tokenizer(lexerMode);
+			lines = new ArrayList<Line>();
+		}
+
+		@Override
+		public Chunk call() {
+			SyntaxValidator syntaxValidator = new SyntaxValidator();
+			int lineNumber = STARTING_LINE_NUMBER;
+			try (MappedSourceReader reader = new MappedSourceReader(file, start, end)) {
+				while (error == null && reader.nextLine()) {
+					if (!reader.isLineBlank()) {
+						Line line = tokenizer.tokenizeLine(reader.getLine(), lineNumber,
+								                                        reader.isLineComment());
+						error = syntaxValidator.check(line);
+						if (error == null) {
+							lines.add(line);
+							lineNumber++;
+						}
+					}
+				}
+			} catch (IOException e) {
+				ioFailure = e;
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,436 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on disk cache of verdicts, so that files that didn't change since they were last verified
+ * aren't verified again. An entry is keyed by a hash of the file's content together with a
+ * fingerprint of the verifier - a hash of the verifier's own class files and of the options that
+ * affect its verdicts - so a changed verifier never reads the entries of an older one.
+ * Entries are written to a temporary file and then moved into place, so several processes may
+ * share the cache directory and never see a partly written entry. The cache is kept below a size
+ * limit by removing the least recently used entries; reading an entry marks it as used.
+ * Finding the least recently used entries takes a walk over the whole directory, so the lock file
+ * of the directory holds an estimate of the total size of the entries, which every run adds the
+ * size of its entries to, and the directory is only walked once the estimate passes the limit.
+ * Within a single run, identical files that are verified at the same time are only verified once.
+ * The cache is only an optimization: a failure of the cache itself never changes a verdict, the
+ * file is then verified as if the cache didn't have it.
+ * @author Alon and Michal
+ *
+ */
+class ResultCache {
+
+	static final long DEFAULT_MAX_SIZE = 64L << 20;
+
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String FALLBACK_VERSION = "sjavac";
+	private static final String CLASS_FILE_SUFFIX = ".class";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final String LOCK_FILE_NAME = ".lock";
+	private static final int SUBDIRECTORY_NAME_LENGTH = 2;
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final char ENTRY_SEPARATOR = '\n';
+	private static final int ESTIMATED_SIZE_BYTES = Long.BYTES;
+	private static final long UNKNOWN_SIZE = -1;
+	// A run evicts entries every time it wrote this fraction of the maximal size.
+	private static final int EVICTION_INTERVAL_DIVISOR = 8;
+	// Eviction removes entries until the cache is down to this fraction of the maximal size.
+	private static final double EVICTION_TARGET = 0.75;
+	// Temporary files older than this were left by a process that died while writing them.
+	private static final long STALE_TEMP_FILE_MILLIS = 60 * 60 * 1000;
+
+	private final Path directory;
+	private final long maxSize;
+	private final byte[] fingerprint;
+	private final ConcurrentHashMap<String, CompletableFuture<VerificationResult>> inProgress;
+	private final AtomicLong writtenSinceEviction;
+	private final AtomicBoolean isEvicting;
+
+	/**
+	 * Constructor
+	 * @param directory Directory to keep the entries in
+	 * @param maxSize Maximal total size of the entries, in bytes
+	 * @param options Description of the verifier options that may change its verdicts
+	 * @throws IOException If the directory can't be created
+	 */
+	ResultCache(Path directory, long maxSize, String options) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.maxSize = maxSize;
+		fingerprint = computeFingerprint(options);
+		inProgress = new ConcurrentHashMap<String, CompletableFuture<VerificationResult>>();
+		writtenSinceEviction = new AtomicLong();
+		isEvicting = new AtomicBoolean();
+	}
+
+	/**
+	 * Returns the verdict on the given file from the cache, or computes and caches it if the
+	 * cache doesn't have it.
+	 * @param file Path of the file
+	 * @param verification Computes the verdict on the file
+	 * @return The verdict on the file
+	 */
+	VerificationResult get(Path file, Supplier<VerificationResult> verification) {
+		String key;
+		try {
+			key = hashContent(file);
+		} catch (IOException e) {
+			return VerificationResult.ioError();
+		}
+		CompletableFuture<VerificationResult> future = new CompletableFuture<VerificationResult>();
+		CompletableFuture<VerificationResult> existing = inProgress.putIfAbsent(key, future);
+		if (existing != null) {
+			return await(existing);
+		}
+		try {
+			VerificationResult result = readQuietly(key);
+			if (result == null) {
+				result = verification.get();
+				writeQuietly(key, result);
+			}
+			future.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inProgress.remove(key);
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries, if the cache grew beyond its maximal size.
+	 * Nothing is done if no entry was written since the last eviction, as reading entries doesn't
+	 * make the cache grow, and the entries are only looked at once the estimated size of the cache
+	 * passes its maximal size. Only one thread of one process evicts entries at a time; if another
+	 * one is already evicting, nothing is done, and the entries written are left for the next
+	 * eviction.
+	 */
+	void evict() {
+		long written = writtenSinceEviction.getAndSet(0);
+		if (written == 0) {
+			return;
+		}
+		// A file lock is held by the whole process, and trying to lock it again from another
+		// thread throws rather than failing, so the threads of the process take turns first.
+		if (!isEvicting.compareAndSet(false, true)) {
+			writtenSinceEviction.addAndGet(written);
+			return;
+		}
+		try {
+			evict(written);
+		} finally {
+			isEvicting.set(false);
+		}
+	}
+
+	private void evict(long written) {
+		try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				FileLock lock = lockChannel.tryLock()) {
+			if (lock == null) {
+				writtenSinceEviction.addAndGet(written);
+				return;
+			}
+			long estimatedSize = readEstimatedSize(lockChannel);
+			if (estimatedSize == UNKNOWN_SIZE || estimatedSize + written > maxSize) {
+				estimatedSize = evictEntries();
+			} else {
+				estimatedSize += written;
+			}
+			writeEstimatedSize(lockChannel, estimatedSize);
+		} catch (IOException | RuntimeException e) {
+			// The cache is only an optimization, it will be evicted by the next run.
+		}
+	}
+
+	/*
+	 * Returns the estimated total size of the entries kept in the lock file, or UNKNOWN_SIZE if it
+	 * holds none.
+	 */
+	private static long readEstimatedSize(FileChannel lockChannel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(ESTIMATED_SIZE_BYTES);
+		while (buffer.hasRemaining()) {
+			if (lockChannel.read(buffer, buffer.position()) < 0) {
+				return UNKNOWN_SIZE;
+			}
+		}
+		buffer.flip();
+		return buffer.getLong();
+	}
+
+	private static void writeEstimatedSize(FileChannel lockChannel, long estimatedSize)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(ESTIMATED_SIZE_BYTES);
+		buffer.putLong(estimatedSize).flip();
+		while (buffer.hasRemaining()) {
+			lockChannel.write(buffer, buffer.position());
+		}
+	}
+
+	/*
+	 * Removes the least recently used entries until the cache is down to the target size, if it
+	 * is beyond its maximal size. Returns the total size of the entries that are left.
+	 */
+	private long evictEntries() throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		long totalSize = 0;
+		long now = System.currentTimeMillis();
+		try (Stream<Path> walk = Files.walk(directory)) {
+			for (Path path : walk.collect(Collectors.toList())) {
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				if (!attributes.isRegularFile()
+						|| path.getFileName().toString().equals(LOCK_FILE_NAME)) {
+					continue;
+				}
+				long lastUsed = attributes.lastModifiedTime().toMillis();
+				if (path.toString().endsWith(TEMP_FILE_SUFFIX)) {
+					if (now - lastUsed > STALE_TEMP_FILE_MILLIS) {
+						Files.deleteIfExists(path);
+					}
+					continue;
+				}
+				entries.add(new Entry(path, attributes.size(), lastUsed));
+				totalSize += attributes.size();
+			}
+		}
+		if (totalSize <= maxSize) {
+			return totalSize;
+		}
+		entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+		long targetSize = (long) (maxSize * EVICTION_TARGET);
+		for (Entry entry : entries) {
+			if (totalSize <= targetSize) {
+				break;
+			}
+			Files.deleteIfExists(entry.path);
+			totalSize -= entry.size;
+		}
+		return totalSize;
+	}
+
+	/*
+	 * Reads the verdict kept under the key, or returns null if there is none or the cache fails.
+	 */
+	private VerificationResult readQuietly(String key) {
+		try {
+			return read(key);
+		} catch (RuntimeException e) {
+			// The cache is only an optimization, the file is verified instead.
+			return null;
+		}
+	}
+
+	/*
+	 * Keeps the verdict under the key, unless the cache fails.
+	 */
+	private void writeQuietly(String key, VerificationResult result) {
+		try {
+			write(key, result);
+		} catch (RuntimeException e) {
+			// The cache is only an optimization, the verdict was still computed.
+		}
+	}
+
+	private VerificationResult read(String key) {
+		Path entryPath = entryPath(key);
+		String entry;
+		try {
+			entry = new String(Files.readAllBytes(entryPath), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// The entry was evicted by another process after it was read, it is still valid.
+		}
+		int separator = entry.indexOf(ENTRY_SEPARATOR);
+		if (separator < 0) {
+			return null;
+		}
+		String code = entry.substring(0, separator);
+		String message = entry.substring(separator + 1);
+		if (code.equals(String.valueOf(VerificationResult.LEGAL_CODE_MARKER))) {
+			return VerificationResult.legal();
+		}
+		if (code.equals(String.valueOf(VerificationResult.ILLEGAL_CODE_MARKER))) {
+			return VerificationResult.illegal(message);
+		}
+		return null;
+	}
+
+	private void write(String key, VerificationResult result) {
+		if (result.getCode() == VerificationResult.IO_ERROR_MARK) {
+			// A file that couldn't be read doesn't have a content to key the verdict by.
+			return;
+		}
+		if (result.getCode() == VerificationResult.BUDGET_EXCEEDED_MARK) {
+			// The time a verification takes depends on the machine and its load, not on the file.
+			return;
+		}
+		String message = result.getMessage() == null ? "" : result.getMessage();
+		byte[] entry = (result.getCode() + String.valueOf(ENTRY_SEPARATOR) + message)
+				.getBytes(StandardCharsets.UTF_8);
+		Path entryPath = entryPath(key);
+		try {
+			Files.createDirectories(entryPath.getParent());
+			Path tempPath = Files.createTempFile(entryPath.getParent(), key, TEMP_FILE_SUFFIX);
+			Files.write(tempPath, entry);
+			Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// The cache is only an optimization, the verdict was still computed.
+			return;
+		}
+		if (writtenSinceEviction.addAndGet(entry.length) > maxSize / EVICTION_INTERVAL_DIVISOR) {
+			evict();
+		}
+	}
+
+	private Path entryPath(String key) {
+		return directory.resolve(key.substring(0, SUBDIRECTORY_NAME_LENGTH)).resolve(key);
+	}
+
+	private String hashContent(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(fingerprint);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static VerificationResult await(CompletableFuture<VerificationResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return VerificationResult.ioError();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw (Error) e.getCause();
+		}
+	}
+
+	/*
+	 * Hashes the class files of the verifier (or the jar they are in) and the options.
+	 */
+	private static byte[] computeFingerprint(String options) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(options.getBytes(StandardCharsets.UTF_8));
+		CodeSource codeSource = ResultCache.class.getProtectionDomain().getCodeSource();
+		Path location = null;
+		try {
+			if (codeSource != null) {
+				location = Paths.get(codeSource.getLocation().toURI());
+			}
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			location = null;
+		}
+		if (location == null) {
+			digest.update(FALLBACK_VERSION.getBytes(StandardCharsets.UTF_8));
+			return digest.digest();
+		}
+		List<Path> classFiles;
+		if (Files.isDirectory(location)) {
+			Path packageRoot = location.resolve(ResultCache.class.getPackage().getName()
+					.replace('.', '/')).getParent();
+			try (Stream<Path> walk = Files.walk(packageRoot)) {
+				classFiles = walk.filter(path -> path.toString().endsWith(CLASS_FILE_SUFFIX))
+						.sorted().collect(Collectors.toList());
+			}
+		} else {
+			classFiles = new ArrayList<Path>();
+			classFiles.add(location);
+		}
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		for (Path classFile : classFiles) {
+			digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+			try (InputStream in = Files.newInputStream(classFile)) {
+				int bytesRead;
+				while ((bytesRead = in.read(buffer)) > 0) {
+					digest.update(buffer, 0, bytesRead);
+				}
+			}
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * A cache entry, as seen when evicting entries.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static class Entry {
+
+		private final Path path;
+		private final long size;
+		private final long lastUsed;
+
+		private Entry(Path path, long size, long lastUsed) {
+			this.path = path;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
@@ -1,106 +1,216 @@
 package oop.ex6.main;
 
-import java.io.File;
 import java.io.IOException;
-import java.text.ParseException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
 
-import oop.ex6.line.Line;
 import oop.ex6.line.Tokenizer;
-import oop.ex6.validator.SemanticsException;
-import oop.ex6.validator.SyntaxException;
-import oop.ex6.validator.SyntaxValidator;
-import oop.ex6.validator.SemanticsValidator;
-import oop.ex6.tables.InvalidTableAccessException;
-import oop.ex6.tables.ScopeException;
-import oop.ex6.tables.TableAndScopeMaker;
 
 /**
  * Main class of the s-Java verifier. The class receives a source code file written in
- * Sjava and returns 0 if the file is valid, 1 if the file isn't valid, and 2 for IO errors.
+ * Sjava and returns 0 if the file is valid, 1 if the file isn't valid, 2 for IO errors, and 3 if
+ * the verification of the file was given up for breaking its budget.
  * In the case the file isn't valid, explanations will be printed to the error stream.
+ * The class may also receive several files, directories or list files, in which case the files
+ * are verified on a pool of threads, and the verdict on each file is printed next to its path.
  * @author Alon and Michal
  *
  */
 public class Sjavac {
 		
-		private static final int LEGAL_CODE_MARKER = 0;
-		private static final int ILLEGAL_CODE_MARKER = 1;
-		private static final int IO_ERROR_MARK = 2;
-	
-	
-		private static final int NUMBER_OF_SOURCE_FILES = 1;
-		private static final int STARTING_LINE_NUMBER = 1;
+		private static final String OPTION_PREFIX = "--";
+		private static final String LEXER_OPTION = "--lexer=";
+		private static final String STREAMING_OPTION = "--streaming";
+		private static final String FUSED_OPTION = "--fused";
+		private static final String PRESCAN_OPTION = "--prescan";
+		private static final String LOW_MEMORY_OPTION = "--low-memory";
+		private static final String OFF_HEAP_OPTION = "--off-heap";
+		private static final String PARALLEL_OPTION = "--parallel";
+		private static final String THREADS_OPTION = "--threads";
+		private static final String SERVER_OPTION = "--server";
+		private static final String CACHE_OPTION = "--cache=";
+		private static final String CACHE_SIZE_OPTION = "--cache-size=";
+		private static final String ALL_ERRORS_OPTION = "--all-errors";
+		private static final String TIER_OPTION = "--tier=";
+		private static final String MAX_LINE_LENGTH_OPTION = "--max-line-length";
+		private static final String TIME_BUDGET_OPTION = "--time-budget";
+		private static final String COUNT_SEPARATOR = "=";
 		
 		/**
 		 * Main method. Runs the verifier
-		 * @param args The path to the s-Java code file.
+		 * @param args The paths to the s-Java code files, optionally preceded by
+		 * --lexer=dfa|regex|cross_check, which chooses the way lines are split into tokens, and
+		 * --streaming, which verifies the file in a single pass without keeping all of its lines,
+		 * --fused, which also validates the semantics of each line as soon as it is read,
+		 * --prescan, which first scans the declarations of the file, and then validates each line
+		 * as soon as it is read, like --fused, with nothing left to the end of the file,
+		 * --low-memory, which reads the file twice instead of keeping its lines and tokens, or
+		 * --parallel[=threads], which tokenizes and syntactically validates the file on several threads.
+		 * --off-heap keeps the tokens of each file outside of the heap, in the default (batch) and
+		 * low memory modes.
+		 * When more than a single file is verified, --threads=count sets the number of files that are
+		 * verified at once. A directory stands for all the .sjava files under it, and @path for the
+		 * files and directories listed in the file at path, one per line.
+		 * With --server[=port] no files are given; instead the verifier keeps running, and verifies
+		 * the files that SjavacClient sends it.
+		 * --cache=directory keeps the verdicts on files in the given directory, so that unchanged
+		 * files aren't verified again, and --cache-size=bytes limits the size of the cache.
+		 * --all-errors[=count] goes on verifying a file past its errors, and reports up to count
+		 * errors (100 by default), each with the number of its line.
+		 * --tier=l0|l1|l2|auto chooses how far files are verified: l0 only scans the structure of
+		 * the lines, l1 also validates their syntax, l2 (the default) verifies them in full, and
+		 * auto scans the structure of each file and verifies it in full if it passes the scan.
+		 * --max-line-length=chars and --time-budget=ms give up on a file with a line longer than
+		 * chars, or whose verification takes longer than ms milliseconds, with the verdict 3.
 		 */
 		
 		public static void main(String[] args){
-			if(args.length != NUMBER_OF_SOURCE_FILES){
-				System.err.println("Wrong number of parameters.");
-				return;
-			}
-			
-			TableAndScopeMaker tableMaker = new TableAndScopeMaker();
-			Tokenizer tokenizer = new Tokenizer();
-			SyntaxValidator syntaxValidator = new SyntaxValidator();
-			SemanticsValidator semanticsValidator;
-			File file = new File(args[0]);
-			int currentLineNumber = STARTING_LINE_NUMBER;
-			String currentLineString;
-			Line currentLineObject;
-			List<Line> linesList =new ArrayList<Line>();
-			try(Scanner scanner = new Scanner(file)){
-				while(scanner.hasNextLine()){
-					currentLineString = scanner.nextLine();
-					//The program only pays attention to non empty lines
-					if(!currentLineString.trim().isEmpty()){
-						currentLineObject = tokenizer.tokenize(currentLineString, currentLineNumber);
-						syntaxValidator.validate(currentLineObject);
-						tableMaker.addtoTable(currentLineObject);
-						linesList.add(currentLineObject);
-						currentLineNumber++;
+			Tokenizer.LexerMode lexerMode = Tokenizer.LexerMode.DFA;
+			SourceVerifier.Mode mode = SourceVerifier.Mode.BATCH;
+			int parallelism = 0;
+			int threads = Runtime.getRuntime().availableProcessors();
+			int serverPort = 0;
+			Path cacheDirectory = null;
+			long cacheSize = ResultCache.DEFAULT_MAX_SIZE;
+			int maxErrors = 0;
+			SourceVerifier.Tier tier = SourceVerifier.Tier.L2;
+			boolean isOffHeap = false;
+			int maxLineLength = 0;
+			int timeBudget = 0;
+			int firstFileArg = 0;
+			while(firstFileArg < args.length && args[firstFileArg].startsWith(OPTION_PREFIX)){
+				String option = args[firstFileArg];
+				try{
+					if(option.startsWith(LEXER_OPTION)){
+						lexerMode = Tokenizer.LexerMode.valueOf(
+								option.substring(LEXER_OPTION.length()).toUpperCase());
+					}else if(option.equals(STREAMING_OPTION)){
+						mode = SourceVerifier.Mode.STREAMING;
+					}else if(option.equals(FUSED_OPTION)){
+						mode = SourceVerifier.Mode.FUSED;
+					}else if(option.equals(PRESCAN_OPTION)){
+						mode = SourceVerifier.Mode.PRESCAN;
+					}else if(option.equals(LOW_MEMORY_OPTION)){
+						mode = SourceVerifier.Mode.LOW_MEMORY;
+					}else if(option.equals(OFF_HEAP_OPTION)){
+						isOffHeap = true;
+					}else if(option.equals(PARALLEL_OPTION)){
+						parallelism = Runtime.getRuntime().availableProcessors();
+					}else if(option.startsWith(PARALLEL_OPTION + COUNT_SEPARATOR)){
+						parallelism = parseCount(option, PARALLEL_OPTION);
+					}else if(option.startsWith(THREADS_OPTION + COUNT_SEPARATOR)){
+						threads = parseCount(option, THREADS_OPTION);
+					}else if(option.equals(SERVER_OPTION)){
+						serverPort = VerifierServer.DEFAULT_PORT;
+					}else if(option.startsWith(SERVER_OPTION + COUNT_SEPARATOR)){
+						serverPort = parseCount(option, SERVER_OPTION);
+					}else if(option.equals(ALL_ERRORS_OPTION)){
+						maxErrors = ErrorCollector.DEFAULT_MAX_ERRORS;
+					}else if(option.startsWith(ALL_ERRORS_OPTION + COUNT_SEPARATOR)){
+						maxErrors = parseCount(option, ALL_ERRORS_OPTION);
+					}else if(option.startsWith(TIER_OPTION)){
+						tier = SourceVerifier.Tier.valueOf(
+								option.substring(TIER_OPTION.length()).toUpperCase());
+					}else if(option.startsWith(MAX_LINE_LENGTH_OPTION + COUNT_SEPARATOR)){
+						maxLineLength = parseCount(option, MAX_LINE_LENGTH_OPTION);
+					}else if(option.startsWith(TIME_BUDGET_OPTION + COUNT_SEPARATOR)){
+						timeBudget = parseCount(option, TIME_BUDGET_OPTION);
+					}else if(option.startsWith(CACHE_OPTION)){
+						cacheDirectory = Paths.get(option.substring(CACHE_OPTION.length()));
+					}else if(option.startsWith(CACHE_SIZE_OPTION)){
+						cacheSize = Long.parseLong(option.substring(CACHE_SIZE_OPTION.length()));
+						if(cacheSize < 1){
+							throw new IllegalArgumentException();
+						}
+					}else{
+						throw new IllegalArgumentException();
 					}
-					
+				}catch(IllegalArgumentException e){
+					System.err.println("Unknown option: " + option);
+					return;
 				}
-				semanticsValidator =  new SemanticsValidator(linesList, tableMaker.getVariableTable(),
-						                                                      tableMaker.getMethodTable());
-				semanticsValidator.validateSemantics();
+				firstFileArg++;
+			}
+			if(mode != SourceVerifier.Mode.BATCH && parallelism > 0){
+				System.err.println("The parallel mode can't be combined with other modes.");
+				return;
+			}
+			if(isOffHeap && ((mode != SourceVerifier.Mode.BATCH
+					&& mode != SourceVerifier.Mode.LOW_MEMORY) || parallelism > 0 || maxErrors > 0)){
+				System.err.println("Tokens can only be kept off the heap in the default and low "
+						+ "memory modes.");
+				return;
+			}
+			if(maxErrors > 0 && (mode != SourceVerifier.Mode.BATCH || parallelism > 0)){
+				System.err.println("All errors can only be reported in the default mode.");
+				return;
 			}
-			catch(InvalidTableAccessException e){
-				System.out.println(ILLEGAL_CODE_MARKER);
-				System.err.println("Invalid table operation: "+ e.getMessage());
+			if(maxErrors > 0 && tier != SourceVerifier.Tier.L2){
+				System.err.println("All errors can only be reported by the full verification.");
 				return;
 			}
-			catch(ParseException e){
-				System.out.println(ILLEGAL_CODE_MARKER);
-				System.err.println("Invalid line type: "+ e.getMessage());
+			if((maxLineLength > 0 || timeBudget > 0) && (parallelism > 0 || maxErrors > 0)){
+				System.err.println("Budgets can't be combined with the parallel mode or with "
+						+ "reporting all errors.");
 				return;
 			}
-			catch(SyntaxException e){
-				System.out.println(ILLEGAL_CODE_MARKER);
-				System.err.println("Syntax error: " + e.getMessage());
+			List<String> paths = Arrays.asList(args).subList(firstFileArg, args.length);
+			if(paths.isEmpty() == (serverPort == 0)){
+				System.err.println("Wrong number of parameters.");
 				return;
 			}
-			catch(SemanticsException e){
-				System.out.println(ILLEGAL_CODE_MARKER);
-				System.err.println("Semantics error: " + e.getMessage());
+			
+			ResultCache cache = null;
+			if(cacheDirectory != null){
+				try{
+					cache = new ResultCache(cacheDirectory, cacheSize,
+							SourceVerifier.describeOptions(lexerMode, mode, maxErrors, tier));
+				}
+				catch(IOException e){
+					System.err.println("Can't use the cache: " + e.getMessage());
+				}
+			}
+			SourceVerifier verifier = new SourceVerifier(lexerMode, mode, parallelism, maxErrors,
+					tier, isOffHeap, maxLineLength, timeBudget, cache);
+			if(serverPort != 0){
+				try{
+					new VerifierServer(verifier, serverPort, threads).serve(System.err);
+				}
+				catch(IOException e){
+					System.err.println("Can't run the server: " + e.getMessage());
+				}
 				return;
 			}
-			catch(ScopeException e){
-				System.out.println(ILLEGAL_CODE_MARKER);
-				System.err.println("Scope error: " + e.getMessage());
+			if(!BatchVerifier.isBatch(paths)){
+				verifier.verify(Paths.get(paths.get(0))).print(System.out, System.err);
+				verifier.trimCache();
 				return;
 			}
+			List<Path> files;
+			try{
+				files = BatchVerifier.collectFiles(paths);
+			}
 			catch(IOException e){
-				System.out.println(IO_ERROR_MARK);
+				System.out.println(VerificationResult.IO_ERROR_MARK);
+				System.err.println("Can't read the list of files: " + e.getMessage());
 				return;
 			}
-			System.out.println(LEGAL_CODE_MARKER);
+			new BatchVerifier(verifier, threads).verifyAll(files, System.out, System.err);
+			verifier.trimCache();
+		}
+		
+		/*
+		 * Parses the positive number that follows the = of an option.
+		 */
+		private static int parseCount(String option, String optionName){
+			int count = Integer.parseInt(option.substring(
+					optionName.length() + COUNT_SEPARATOR.length()));
+			if(count < 1){
+				throw new IllegalArgumentException();
+			}
+			return count;
 		}
 			
 	
@@ -0,0 +1,93 @@
+package oop.ex6.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * A thin client of the verifier server. The client receives the path of an s-Java code file (or
+ * "-" for code given in the standard input), sends it to a server running on the local host, and
+ * prints the answer exactly as Sjavac would: the verdict code to the output stream, and the
+ * explanation of the error, if there is one, to the error stream.
+ * If no server is running, the file is verified by this process instead.
+ * The client doesn't load any of the verifier classes unless it has to verify the file itself.
+ * @author Alon and Michal
+ *
+ */
+public class SjavacClient {
+
+	private static final String PORT_OPTION = "--port=";
+	private static final String STANDARD_INPUT_PATH = "-";
+	private static final int NUMBER_OF_SOURCE_FILES = 1;
+
+	/**
+	 * Main method. Sends the file to the server.
+	 * @param args The path to the s-Java code file, optionally preceded by --port=port, the port
+	 * the server listens on.
+	 */
+	public static void main(String[] args) {
+		int port = VerifierServer.DEFAULT_PORT;
+		int firstFileArg = 0;
+		if (args.length > 0 && args[0].startsWith(PORT_OPTION)) {
+			try {
+				port = Integer.parseInt(args[0].substring(PORT_OPTION.length()));
+			} catch (NumberFormatException e) {
+				System.err.println("Unknown option: " + args[0]);
+				return;
+			}
+			firstFileArg++;
+		}
+		if (args.length - firstFileArg != NUMBER_OF_SOURCE_FILES) {
+			System.err.println("Wrong number of parameters.");
+			return;
+		}
+		String path = args[firstFileArg];
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			sendRequest(socket.getOutputStream(), path);
+			printAnswer(new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.UTF_8)));
+		} catch (ConnectException e) {
+			if (path.equals(STANDARD_INPUT_PATH)) {
+				System.err.println("No verifier server is running.");
+				return;
+			}
+			Sjavac.main(new String[] {path});
+		} catch (IOException e) {
+			System.err.println("Lost the connection to the verifier server.");
+		}
+	}
+
+	private static void sendRequest(OutputStream out, String path) throws IOException {
+		if (path.equals(STANDARD_INPUT_PATH)) {
+			byte[] source = System.in.readAllBytes();
+			out.write((VerifierServer.SOURCE_REQUEST + VerifierServer.REQUEST_SEPARATOR
+					+ source.length + VerifierServer.LINE_END).getBytes(StandardCharsets.UTF_8));
+			out.write(source);
+		} else {
+			// The server may run in another directory, so it is given an absolute path.
+			out.write((VerifierServer.FILE_REQUEST + VerifierServer.REQUEST_SEPARATOR
+					+ Paths.get(path).toAbsolutePath() + VerifierServer.LINE_END)
+					.getBytes(StandardCharsets.UTF_8));
+		}
+		out.flush();
+	}
+
+	private static void printAnswer(BufferedReader in) throws IOException {
+		String code = in.readLine();
+		if (code == null) {
+			throw new IOException("No answer");
+		}
+		System.out.println(code);
+		String message;
+		while ((message = in.readLine()) != null) {
+			System.err.println(message);
+		}
+	}
+}
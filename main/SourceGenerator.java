@@ -0,0 +1,387 @@
+package oop.ex6.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random s-Java code for VerifierCheck. A file is generated legal: its global variables
+ * and its methods are declared with random types, and the bodies of the methods declare, assign and
+ * read variables, call methods (including methods declared further down) and open if and while
+ * blocks (some of them without a bracket, which the syntax rules accept), reading only variables
+ * that were assigned a value, as the verifier demands. Some global variables are only assigned a
+ * value below the methods that read them. About half of the files are then broken by a single
+ * mutation of a random line (a char cut off its end, a fragment added to it, the line replaced by
+ * noise, removed or repeated), so that both legal and illegal files come out.
+ * Noise lines are random sequences of the fragments that are the hardest to split into tokens.
+ * The code is generated from a seed, so the same seed always gives the same code.
+ * @author Alon and Michal
+ *
+ */
+class SourceGenerator {
+
+	private static final String[] TYPES = {"int", "double", "String", "boolean", "char"};
+	private static final int INT_TYPE = 0;
+	private static final int DOUBLE_TYPE = 1;
+	private static final int STRING_TYPE = 2;
+	private static final int BOOLEAN_TYPE = 3;
+	private static final int[] CONDITION_TYPES = {INT_TYPE, DOUBLE_TYPE, BOOLEAN_TYPE};
+	private static final String[][] VALUES = {{"5", "-12", "0"}, {"5.5", "-0.25", "7"},
+			{"\"hi\"", "\"a b\"", "\"x y\""}, {"true", "false", "3", "-1.5"},
+			{"'c'", "' '", "'x'"}};
+	private static final String[] NAME_PREFIXES = {"v", "_v", "iffy", "voidy", "whileX", "intY",
+			"finalZ", "Val"};
+	private static final String[] METHOD_NAME_PREFIXES = {"foo", "bar", "iffy", "whileLoop"};
+	private static final String[] BLANKS = {"", " ", "\t", "  "};
+	// A tab between the name of a method and its parenthesis is taken as part of the name.
+	private static final String[] SPACES = {"", " ", "  "};
+	private static final String[] NOISE_FRAGMENTS = {"\"", "'", "-", "1", "42", ".", "a", "_",
+			"x1", " ", "\t", "(", ")", "{", "}", ";", ",", "=", "&&", "||", "&", "|", "//", "int ",
+			"if", "while", "void ", "return;", "true", "false", "final ", "String ", "double ",
+			"char ", "boolean ", "\r", "\u0085", "\u00e9", "\u2028", "\f", "\u000b"};
+
+	private static final String LINE_BREAKS = "[\\r\\u0085\\u2028]";
+
+	private static final int MAX_GLOBALS = 5;
+	private static final int MAX_METHODS = 4;
+	private static final int MAX_PARAMETERS = 3;
+	private static final int MAX_BODY_LINES = 6;
+	private static final int MAX_DEPTH = 3;
+	private static final int MAX_NOISE_FRAGMENTS = 12;
+	private static final int MUTATION_KINDS = 6;
+	private static final int COMMENT_LINE_ODDS = 15;
+	private static final int BLANK_LINE_ODDS = 10;
+
+	private final Random random;
+	private List<String> lines;
+	private List<Variable> visible;
+	private List<Method> methods;
+	private int nameCount;
+
+	/**
+	 * Constructor
+	 * @param seed The seed of the generated code
+	 */
+	SourceGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * @return The code of the next random file
+	 */
+	String nextFile() {
+		lines = new ArrayList<String>();
+		visible = new ArrayList<Variable>();
+		methods = new ArrayList<Method>();
+		nameCount = 0;
+		int methodCount = random.nextInt(MAX_METHODS + 1);
+		for (int i = 0; i < methodCount; i++) {
+			methods.add(new Method());
+		}
+		List<Variable> assignedLater = new ArrayList<Variable>();
+		int globals = random.nextInt(MAX_GLOBALS + 1);
+		for (int i = 0; i < globals; i++) {
+			Variable global = addDeclaration(0);
+			if (!global.isAssigned && oneIn(2)) {
+				assignedLater.add(global);
+			}
+		}
+		for (Variable global : assignedLater) {
+			// Assigned below the methods, which may still read it, as it is assigned somewhere in
+			// the global scope.
+			global.isAssigned = true;
+		}
+		for (Method method : methods) {
+			addMethod(method);
+		}
+		for (Variable global : assignedLater) {
+			addLine(0, global.name + pick(BLANKS) + "=" + pick(BLANKS) + value(global.type)
+					+ ";");
+		}
+		if (oneIn(2) && !lines.isEmpty()) {
+			mutate();
+		}
+		StringBuilder source = new StringBuilder();
+		for (String line : lines) {
+			source.append(line).append('\n');
+		}
+		return source.toString();
+	}
+
+	/**
+	 * @return A random line of noise
+	 */
+	String nextNoiseLine() {
+		StringBuilder line = new StringBuilder();
+		int fragments = 1 + random.nextInt(MAX_NOISE_FRAGMENTS);
+		for (int i = 0; i < fragments; i++) {
+			line.append(pick(NOISE_FRAGMENTS));
+		}
+		return line.toString();
+	}
+
+	private void addMethod(Method method) {
+		int scopeStart = visible.size();
+		boolean[] wasAssigned = assignments();
+		StringBuilder declaration = new StringBuilder("void ").append(method.name)
+				.append(pick(SPACES)).append('(');
+		boolean isFinal = false;
+		for (int i = 0; i < method.parameterTypes.length; i++) {
+			if (i > 0) {
+				declaration.append(", ");
+			}
+			// The verifier takes every parameter that follows a final one as final as well.
+			isFinal |= oneIn(4);
+			Variable parameter = new Variable(method.parameterTypes[i], isFinal, true);
+			visible.add(parameter);
+			declaration.append(parameter.isFinal ? "final " : "")
+					.append(TYPES[parameter.type]).append(' ').append(parameter.name);
+		}
+		addLine(0, declaration.append(")").append(pick(BLANKS)).append("{").toString());
+		addBody(1);
+		addLine(1, "return;");
+		// Not even a comment may come between the return and the end of the method.
+		lines.add("}");
+		leaveScope(scopeStart, wasAssigned);
+	}
+
+	private void addBody(int depth) {
+		int bodyLines = random.nextInt(MAX_BODY_LINES + 1);
+		for (int i = 0; i < bodyLines; i++) {
+			switch (random.nextInt(5)) {
+			case 0:
+				addDeclaration(depth);
+				break;
+			case 1:
+				addAssignment(depth);
+				break;
+			case 2:
+				addCall(depth);
+				break;
+			case 3:
+				if (depth < MAX_DEPTH) {
+					addBlock(depth);
+				}
+				break;
+			default:
+				addLine(depth, "return;");
+				break;
+			}
+		}
+	}
+
+	private void addBlock(int depth) {
+		StringBuilder condition = new StringBuilder(oneIn(2) ? "if" : "while")
+				.append(pick(BLANKS)).append("(").append(conditionValue());
+		while (oneIn(3)) {
+			condition.append(oneIn(2) ? " && " : " || ").append(conditionValue());
+		}
+		condition.append(")");
+		// A block may also be opened without a bracket, which the syntax rules accept.
+		addLine(depth, oneIn(8) ? condition.toString() : condition.append(" {").toString());
+		int scopeStart = visible.size();
+		boolean[] wasAssigned = assignments();
+		addBody(depth + 1);
+		addLine(depth, "}");
+		leaveScope(scopeStart, wasAssigned);
+	}
+
+	private Variable addDeclaration(int depth) {
+		int type = random.nextInt(TYPES.length);
+		boolean isFinal = oneIn(5);
+		boolean isAssigned = isFinal || oneIn(2);
+		StringBuilder line = new StringBuilder(isFinal ? "final " : "").append(TYPES[type]);
+		String value = isAssigned ? readValue(type) : null;
+		Variable variable = new Variable(type, isFinal, isAssigned);
+		line.append(' ').append(variable.name);
+		if (isAssigned) {
+			line.append(pick(BLANKS)).append("=").append(pick(BLANKS)).append(value);
+		}
+		visible.add(variable);
+		while (!isFinal && oneIn(4)) {
+			Variable other = new Variable(type, false, false);
+			line.append(", ").append(other.name);
+			visible.add(other);
+		}
+		addLine(depth, line.append(';').toString());
+		return variable;
+	}
+
+	private void addAssignment(int depth) {
+		List<Variable> assignable = new ArrayList<Variable>();
+		for (Variable variable : visible) {
+			if (!variable.isFinal) {
+				assignable.add(variable);
+			}
+		}
+		if (assignable.isEmpty()) {
+			return;
+		}
+		Variable variable = assignable.get(random.nextInt(assignable.size()));
+		String value = readValue(variable.type);
+		variable.isAssigned = true;
+		addLine(depth, variable.name + pick(BLANKS) + "=" + pick(BLANKS) + value + ";");
+	}
+
+	private void addCall(int depth) {
+		if (methods.isEmpty()) {
+			return;
+		}
+		Method method = methods.get(random.nextInt(methods.size()));
+		StringBuilder line = new StringBuilder(method.name).append(pick(SPACES)).append('(');
+		for (int i = 0; i < method.parameterTypes.length; i++) {
+			if (i > 0) {
+				line.append(",").append(pick(BLANKS));
+			}
+			line.append(readValue(method.parameterTypes[i]));
+		}
+		addLine(depth, line.append(");").toString());
+	}
+
+	/*
+	 * Returns a value of the given type: a literal, or a variable of the type that was assigned.
+	 */
+	private String readValue(int type) {
+		if (oneIn(2)) {
+			List<Variable> readable = new ArrayList<Variable>();
+			for (Variable variable : visible) {
+				if (variable.type == type && variable.isAssigned) {
+					readable.add(variable);
+				}
+			}
+			if (!readable.isEmpty()) {
+				return readable.get(random.nextInt(readable.size())).name;
+			}
+		}
+		return value(type);
+	}
+
+	private String conditionValue() {
+		return readValue(CONDITION_TYPES[random.nextInt(CONDITION_TYPES.length)]);
+	}
+
+	private String value(int type) {
+		return pick(VALUES[type]);
+	}
+
+	private boolean[] assignments() {
+		boolean[] isAssigned = new boolean[visible.size()];
+		for (int i = 0; i < isAssigned.length; i++) {
+			isAssigned[i] = visible.get(i).isAssigned;
+		}
+		return isAssigned;
+	}
+
+	/*
+	 * Removes the variables declared within a scope that is left, and forgets the assignments made
+	 * within it, which don't count after it.
+	 */
+	private void leaveScope(int scopeStart, boolean[] wasAssigned) {
+		while (visible.size() > scopeStart) {
+			visible.remove(visible.size() - 1);
+		}
+		for (int i = 0; i < wasAssigned.length; i++) {
+			visible.get(i).isAssigned = wasAssigned[i];
+		}
+	}
+
+	/*
+	 * Adds the line, indented by the given depth, along with the comment and blank lines that
+	 * randomly come before it.
+	 */
+	private void addLine(int depth, String line) {
+		if (oneIn(COMMENT_LINE_ODDS)) {
+			// A line break within the noise would end the comment.
+			lines.add("// " + nextNoiseLine().replaceAll(LINE_BREAKS, " "));
+		}
+		if (oneIn(BLANK_LINE_ODDS)) {
+			lines.add(pick(BLANKS));
+		}
+		StringBuilder indented = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			indented.append(pick(BLANKS));
+		}
+		lines.add(indented.append(line).toString());
+	}
+
+	/*
+	 * Breaks a random line of the file.
+	 */
+	private void mutate() {
+		int index = random.nextInt(lines.size());
+		String line = lines.get(index);
+		switch (random.nextInt(MUTATION_KINDS)) {
+		case 0:
+			lines.set(index, line.isEmpty() ? line : line.substring(0, line.length() - 1));
+			break;
+		case 1:
+			lines.set(index, line + pick(NOISE_FRAGMENTS));
+			break;
+		case 2:
+			lines.set(index, pick(NOISE_FRAGMENTS) + line);
+			break;
+		case 3:
+			lines.set(index, nextNoiseLine());
+			break;
+		case 4:
+			lines.remove(index);
+			break;
+		default:
+			lines.add(index, line);
+			break;
+		}
+	}
+
+	private String pick(String[] options) {
+		return options[random.nextInt(options.length)];
+	}
+
+	private boolean oneIn(int odds) {
+		return random.nextInt(odds) == 0;
+	}
+
+	/**
+	 * A variable of the generated file, while it is visible.
+	 * @author Alon and Michal
+	 *
+	 */
+	private class Variable {
+
+		private final String name;
+		private final int type;
+		private final boolean isFinal;
+		private boolean isAssigned;
+
+		private Variable(int type, boolean isFinal, boolean isAssigned) {
+			name = pick(NAME_PREFIXES) + nameCount++;
+			this.type = type;
+			this.isFinal = isFinal;
+			this.isAssigned = isAssigned;
+		}
+	}
+
+	/**
+	 * A method of the generated file, whose signature is known before any method is generated.
+	 * @author Alon and Michal
+	 *
+	 */
+	private class Method {
+
+		private final String name;
+		private final int[] parameterTypes;
+
+		private Method() {
+			name = pick(METHOD_NAME_PREFIXES) + nameCount++;
+			parameterTypes = new int[random.nextInt(MAX_PARAMETERS + 1)];
+			boolean hasString = false;
+			for (int i = 0; i < parameterTypes.length; i++) {
+				// A string value takes up the rest of the line up to its last quote, so a call may
+				// only pass a single string.
+				do {
+					parameterTypes[i] = random.nextInt(TYPES.length);
+				} while (hasString && parameterTypes[i] == STRING_TYPE);
+				hasString |= parameterTypes[i] == STRING_TYPE;
+			}
+		}
+	}
+}
@@ -0,0 +1,484 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.LineSource;
+import oop.ex6.line.MappedSourceReader;
+import oop.ex6.line.StringLineSource;
+import oop.ex6.line.Tokenizer;
+import oop.ex6.tables.TableAndScopeMaker;
+import oop.ex6.validator.SemanticsValidator;
+import oop.ex6.validator.SyntaxValidator;
+
+/**
+ * Verifies single source files. The verifier only holds its configuration; the tokenizer, tables
+ * and validators are created anew for every file, so a single verifier may verify several files
+ * at once from different threads. Verdicts on files may be kept in a ResultCache.
+ * A file is verified up to its first error, unless the verifier is asked to collect errors, in
+ * which case the verification goes on past bad lines and reports every error found, up to a limit.
+ * A verifier may also only verify files up to a lower tier, or screen them with the lowest tier
+ * before verifying them in full (see Tier).
+ * Every file may be held to a budget of line length and time (see FileBudget), past which its
+ * verification is given up.
+ * @author Alon and Michal
+ *
+ */
+class SourceVerifier {
+
+	/**
+	 * The ways a file can be verified: BATCH builds the tables out of all the lines of the file
+	 * before validating their semantics, STREAMING validates each method (or global line) once it
+	 * is complete and then releases it, FUSED validates each line as soon as it is added to
+	 * the tables, and PRESCAN scans the declarations of the file first (see DeclarationScanner),
+	 * and then validates each line as soon as it is added to the tables, like FUSED. A file that
+	 * fails the scan is verified in the batch mode instead, for its first error.
+	 * LOW_MEMORY builds the tables like BATCH, but tokenizes the lines again to validate their
+	 * semantics instead of keeping them (see LowMemoryVerifier).
+	 * @author Alon and Michal
+	 *
+	 */
+	static enum Mode {
+		BATCH, STREAMING, FUSED, PRESCAN, LOW_MEMORY;
+	}
+
+	/**
+	 * How far files are verified: L0 only scans the structure of the lines (see StructureScanner),
+	 * L1 also splits the lines into tokens and validates their syntax, and L2 (the default) is
+	 * the full verification. AUTO scans the structure of a file first, and only verifies the files
+	 * that pass the scan in full, so that most illegal files are rejected at about the speed of
+	 * reading them.
+	 * @author Alon and Michal
+	 *
+	 */
+	static enum Tier {
+		L0, L1, L2, AUTO;
+	}
+
+	private static final int STARTING_LINE_NUMBER = 1;
+	private static final char OPENING_BRACKET = '{';
+	private static final char CLOSING_BRACKET = '}';
+
+	private final Tokenizer.LexerMode lexerMode;
+	private final Mode mode;
+	private final ParallelFrontEnd parallelFrontEnd;
+	private final int maxErrors;
+	private final Tier tier;
+	private final boolean isOffHeap;
+	private final int maxLineLength;
+	private final long timeBudget;
+	private final ResultCache cache;
+
+	/**
+	 * Constructor
+	 * @param lexerMode The way lines are split into tokens
+	 * @param mode The way files are verified
+	 * @param parallelism Number of threads to tokenize each file on, or 0 to tokenize it on the
+	 * calling thread
+	 */
+	SourceVerifier(Tokenizer.LexerMode lexerMode, Mode mode, int parallelism) {
+		this(lexerMode, mode, parallelism, 0, Tier.L2, false, 0, 0, null);
+	}
+
+	/**
+	 * Constructor
+	 * @param lexerMode The way lines are split into tokens
+	 * @param mode The way files are verified
+	 * @param parallelism Number of threads to tokenize each file on, or 0 to tokenize it on the
+	 * calling thread
+	 * @param maxErrors Number of errors to collect from each file before giving up on it (in
+	 * the batch mode, without parallelism, verifying files in full), or 0 to stop at the first
+	 * error
+	 * @param tier How far files are verified
+	 * @param isOffHeap True iff the tokens of each file should be kept outside of the heap (in
+	 * the batch mode, without parallelism, and in the low memory mode)
+	 * @param maxLineLength Number of characters each line of a file may hold, or 0 for no limit
+	 * @param timeBudget Number of milliseconds the verification of a file may take, or 0 for no
+	 * limit (both limits are only applied without parallelism, when verifying up to the first
+	 * error)
+	 * @param cache Cache of verdicts on files, or null to always verify files
+	 */
+	SourceVerifier(Tokenizer.LexerMode lexerMode, Mode mode, int parallelism, int maxErrors,
+			Tier tier, boolean isOffHeap, int maxLineLength, long timeBudget, ResultCache cache) {
+		this.lexerMode = lexerMode;
+		this.mode = mode;
+		parallelFrontEnd = parallelism > 0 ? new ParallelFrontEnd(lexerMode, parallelism) : null;
+		this.maxErrors = maxErrors;
+		this.tier = tier;
+		this.isOffHeap = isOffHeap;
+		this.maxLineLength = maxLineLength;
+		this.timeBudget = timeBudget;
+		this.cache = cache;
+	}
+
+	/**
+	 * @param lexerMode The way lines are split into tokens
+	 * @param mode The way files are verified
+	 * @param maxErrors Number of errors collected from each file, or 0
+	 * @param tier How far files are verified
+	 * @return Description of the options that may change the verdict on a file, for keying
+	 * cached verdicts
+	 */
+	static String describeOptions(Tokenizer.LexerMode lexerMode, Mode mode, int maxErrors,
+			                                                                         Tier tier) {
+		return lexerMode + " " + mode + " " + maxErrors + " " + tier;
+	}
+
+	/**
+	 * Verifies the given file.
+	 * @param file Path of the s-Java code file
+	 * @return The verdict on the file
+	 */
+	VerificationResult verify(Path file) {
+		if (cache != null) {
+			return cache.get(file, () -> verify(() -> new MappedSourceReader(file), file));
+		}
+		return verify(() -> new MappedSourceReader(file), file);
+	}
+
+	/**
+	 * Removes old verdicts from the cache, if the verifier has one.
+	 */
+	void trimCache() {
+		if (cache != null) {
+			cache.evict();
+		}
+	}
+
+	/**
+	 * Verifies the given code.
+	 * @param sourceText The s-Java code
+	 * @return The verdict on the code
+	 */
+	VerificationResult verifySource(String sourceText) {
+		return verify(() -> new StringLineSource(sourceText), null);
+	}
+
+	/*
+	 * Verifies the source opened by the given opener. The file is only used by the parallel
+	 * mode, and is null for code that doesn't come from a file.
+	 */
+	private VerificationResult verify(SourceOpener opener, Path file) {
+		if (maxErrors > 0) {
+			return verifyCollectingErrors(opener);
+		}
+		FileBudget budget = null;
+		SourceOpener limitedOpener = opener;
+		if (FileBudget.isLimited(maxLineLength, timeBudget)) {
+			FileBudget fileBudget = new FileBudget(maxLineLength, timeBudget);
+			budget = fileBudget;
+			limitedOpener = () -> fileBudget.limit(opener.open());
+		}
+		ErrorCode error;
+		try {
+			error = verifyUpToTier(limitedOpener, file, budget);
+		} catch (BudgetExceededException e) {
+			return VerificationResult.budgetExceeded(e.getMessage());
+		} catch (IOException e) {
+			return VerificationResult.ioError();
+		}
+		if (error != null) {
+			return VerificationResult.illegal(error);
+		}
+		return VerificationResult.legal();
+	}
+
+	/*
+	 * Verifies the source as far as the tier of the verifier goes. Returns the first error found,
+	 * or null if the source passed the verification. The budget is null if there is none.
+	 */
+	private ErrorCode verifyUpToTier(SourceOpener opener, Path file, FileBudget budget)
+			throws IOException {
+		if (tier != Tier.L2) {
+			ErrorCode error;
+			try (LineSource reader = opener.open()) {
+				error = new StructureScanner().scan(reader);
+			}
+			if (error != null || tier == Tier.L0) {
+				return error;
+			}
+			if (tier == Tier.L1) {
+				return verifySyntax(opener);
+			}
+		}
+		switch (mode) {
+		case BATCH:
+			return verifyBatch(opener, file, budget);
+		case LOW_MEMORY:
+			return verifyWithLowMemory(opener);
+		default:
+			return verifyStreaming(opener, budget);
+		}
+	}
+
+	/*
+	 * Tokenizes and syntactically validates the lines of the source, without adding them to the
+	 * tables. Returns the error of the first bad line, or null if there is none.
+	 */
+	private ErrorCode verifySyntax(SourceOpener opener) throws IOException {
+		Tokenizer tokenizer = new Tokenizer(lexerMode);
+		SyntaxValidator syntaxValidator = new SyntaxValidator();
+		int currentLineNumber = STARTING_LINE_NUMBER;
+		try (LineSource reader = opener.open()) {
+			while (reader.nextLine()) {
+				if (!reader.isLineBlank()) {
+					ErrorCode error = syntaxValidator.check(tokenizer.tokenizeLine(
+							reader.getLine(), currentLineNumber, reader.isLineComment()));
+					if (error != null) {
+						return error;
+					}
+					currentLineNumber++;
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Verifies the source in the batch mode, going on past bad lines. A line that can't be
+	 * tokenized or added to the tables is left out of the semantic validation.
+	 */
+	private VerificationResult verifyCollectingErrors(SourceOpener opener) {
+		ErrorCollector errors = new ErrorCollector(maxErrors);
+		TableAndScopeMaker tableMaker = new TableAndScopeMaker();
+		List<Line> linesList;
+		try (LineSource reader = opener.open()) {
+			linesList = readLines(reader, tableMaker, errors);
+		} catch (IOException e) {
+			return VerificationResult.ioError();
+		}
+		if (!errors.isFull()) {
+			SemanticsValidator semanticsValidator = new SemanticsValidator(linesList,
+					tableMaker.getVariableTable(), tableMaker.getMethodTable());
+			semanticsValidator.validateSemantics(errors);
+		}
+		return errors.getResult();
+	}
+
+	/*
+	 * Verifies the source in the batch mode, up to its first error. Returns the error, or null if
+	 * the source is valid.
+	 */
+	private ErrorCode verifyBatch(SourceOpener opener, Path file, FileBudget budget)
+			throws IOException {
+		TableAndScopeMaker tableMaker = new TableAndScopeMaker();
+		List<Line> linesList = new ArrayList<Line>();
+		Tokenizer tokenizer = new Tokenizer(lexerMode, isOffHeap);
+		try {
+			ErrorCode error;
+			if (parallelFrontEnd != null && file != null) {
+				error = parallelFrontEnd.readLines(file, tableMaker, linesList);
+			} else {
+				try (LineSource reader = opener.open()) {
+					error = readLines(reader, tokenizer, tableMaker, linesList);
+				}
+			}
+			if (error != null) {
+				return error;
+			}
+			SemanticsValidator semanticsValidator = new SemanticsValidator(linesList,
+					tableMaker.getVariableTable(), tableMaker.getMethodTable());
+			if (budget != null && budget.hasDeadline()) {
+				return checkSemantics(semanticsValidator, linesList, budget);
+			}
+			return semanticsValidator.checkSemantics();
+		} finally {
+			tokenizer.releaseTokens();
+		}
+	}
+
+	/*
+	 * Validates the semantics of the lines like SemanticsValidator.checkSemantics, one line at a
+	 * time, so that the deadline of the budget is checked before every line.
+	 */
+	private static ErrorCode checkSemantics(SemanticsValidator semanticsValidator,
+			List<Line> linesList, FileBudget budget) throws BudgetExceededException {
+		Line previousLine = null;
+		for (Line line : linesList) {
+			budget.checkTime();
+			ErrorCode error = semanticsValidator.checkNextLine(line, previousLine);
+			if (error != null) {
+				return error;
+			}
+			previousLine = line;
+		}
+		return SemanticsValidator.checkLastLine(previousLine);
+	}
+
+	/*
+	 * Reads, tokenizes and syntactically validates the lines of the source into the given list,
+	 * and adds them to the tables, up to the first bad line. Returns the error of that line, or
+	 * null if there is none.
+	 */
+	private ErrorCode readLines(LineSource reader, Tokenizer tokenizer,
+			TableAndScopeMaker tableMaker, List<Line> linesList) throws IOException {
+		SyntaxValidator syntaxValidator = new SyntaxValidator();
+		int currentLineNumber = STARTING_LINE_NUMBER;
+		while (reader.nextLine()) {
+			//The program only pays attention to non empty lines
+			if (!reader.isLineBlank()) {
+				Line currentLineObject = tokenizer.tokenizeLine(reader.getLine(), 
+						                               currentLineNumber, reader.isLineComment());
+				ErrorCode error = syntaxValidator.check(currentLineObject);
+				if (error == null) {
+					error = tableMaker.addLine(currentLineObject);
+				}
+				if (error != null) {
+					return error;
+				}
+				linesList.add(currentLineObject);
+				currentLineNumber++;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Reads the lines like the batch mode, reporting the error of every bad line instead of
+	 * stopping at the first. The lines are numbered as they are in the file, blank lines included,
+	 * as the numbers are reported to the user.
+	 */
+	private List<Line> readLines(LineSource reader, TableAndScopeMaker tableMaker,
+			                                     ErrorCollector errors) throws IOException {
+		Tokenizer tokenizer = new Tokenizer(lexerMode);
+		SyntaxValidator syntaxValidator = new SyntaxValidator();
+		List<Line> linesList = new ArrayList<Line>();
+		int currentLineNumber = STARTING_LINE_NUMBER - 1;
+		while (!errors.isFull() && reader.nextLine()) {
+			currentLineNumber++;
+			if (!reader.isLineBlank()) {
+				CharSequence lineContent = reader.getLine();
+				int scopeBefore = tableMaker.getCurrentScope();
+				Line currentLineObject = tokenizer.tokenizeLine(lineContent, currentLineNumber,
+						                                                  reader.isLineComment());
+				ErrorCode error = syntaxValidator.check(currentLineObject);
+				if (error == null) {
+					error = tableMaker.addLine(currentLineObject);
+				}
+				if (error == null) {
+					linesList.add(currentLineObject);
+				} else {
+					errors.errorFound(currentLineNumber, error);
+					tableMaker.recoverScope(scopeBefore, endsWith(lineContent, OPENING_BRACKET),
+							startsWith(lineContent, CLOSING_BRACKET));
+				}
+			}
+		}
+		return linesList;
+	}
+
+	/*
+	 * Returns true iff the first character of the line that isn't a white space is the given one.
+	 */
+	private static boolean startsWith(CharSequence line, char character) {
+		int index = 0;
+		while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+			index++;
+		}
+		return index < line.length() && line.charAt(index) == character;
+	}
+
+	/*
+	 * Returns true iff the last character of the line that isn't a white space is the given one.
+	 */
+	private static boolean endsWith(CharSequence line, char character) {
+		int index = line.length() - 1;
+		while (index >= 0 && Character.isWhitespace(line.charAt(index))) {
+			index--;
+		}
+		return index >= 0 && line.charAt(index) == character;
+	}
+
+	/*
+	 * Verifies the source in the streaming, fused or prescan mode. Returns the first error, or
+	 * null if the source is valid. The budget is null if there is none.
+	 */
+	private ErrorCode verifyStreaming(SourceOpener opener, FileBudget budget) throws IOException {
+		StreamingVerifier streamingVerifier = new StreamingVerifier(new Tokenizer(lexerMode),
+				mode != Mode.STREAMING, mode == Mode.PRESCAN);
+		if (mode == Mode.PRESCAN) {
+			ErrorCode error;
+			try (LineSource reader = opener.open()) {
+				error = streamingVerifier.scanDeclarations(reader);
+			}
+			if (error != null) {
+				// The scan reads the whole file in order, and its error may be found on a line
+				// below the first error of the file, or be an error of the scan alone, so the
+				// verdict and the error are left to the batch mode.
+				return verifyBatch(opener, null, budget);
+			}
+		}
+		int currentLineNumber = STARTING_LINE_NUMBER;
+		try (LineSource reader = opener.open()) {
+			while (reader.nextLine()) {
+				if (!reader.isLineBlank()) {
+					ErrorCode error = streamingVerifier.addLine(reader.getLine(), 
+							                               currentLineNumber, reader.isLineComment());
+					if (error != null) {
+						return error;
+					}
+					currentLineNumber++;
+				}
+			}
+		}
+		return streamingVerifier.finish(budget);
+	}
+
+	/*
+	 * Verifies the source in the low memory mode, reading it twice. Returns the first error, or
+	 * null if the source is valid.
+	 */
+	private ErrorCode verifyWithLowMemory(SourceOpener opener) throws IOException {
+		Tokenizer tokenizer = new Tokenizer(lexerMode, isOffHeap);
+		try {
+			LowMemoryVerifier lowMemoryVerifier = new LowMemoryVerifier(tokenizer);
+			int currentLineNumber = STARTING_LINE_NUMBER;
+			try (LineSource reader = opener.open()) {
+				while (reader.nextLine()) {
+					if (!reader.isLineBlank()) {
+						ErrorCode error = lowMemoryVerifier.addLine(reader.getLine(),
+								                           currentLineNumber, reader.isLineComment());
+						if (error != null) {
+							return error;
+						}
+						currentLineNumber++;
+					}
+				}
+			}
+			currentLineNumber = STARTING_LINE_NUMBER;
+			try (LineSource reader = opener.open()) {
+				while (reader.nextLine()) {
+					if (!reader.isLineBlank()) {
+						ErrorCode error = lowMemoryVerifier.validateLine(reader.getLine(),
+								                           currentLineNumber, reader.isLineComment());
+						if (error != null) {
+							return error;
+						}
+						currentLineNumber++;
+					}
+				}
+			}
+			return lowMemoryVerifier.finish();
+		} finally {
+			tokenizer.releaseTokens();
+		}
+	}
+
+	/**
+	 * Opens the source of the code being verified.
+	 * @author Alon and Michal
+	 *
+	 */
+	private interface SourceOpener {
+
+		/**
+		 * @return The lines of the code
+		 * @throws IOException
+		 */
+		LineSource open() throws IOException;
+	}
+}
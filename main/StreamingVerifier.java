@@ -0,0 +1,239 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.LineSource;
+import oop.ex6.line.Tokenizer;
+import oop.ex6.tables.TableAndScopeMaker;
+import oop.ex6.validator.SemanticsValidator;
+import oop.ex6.validator.SyntaxValidator;
+
+/**
+ * Verifies a file in a single forward pass, without keeping all of its lines in memory.
+ * Lines are gathered into units - a single line in the global scope, or a whole method (or block)
+ * from its opening line until the closing bracket that returns to the global scope. Once a unit is
+ * complete it is semantically validated, and its lines, tokens and local variables are released.
+ * Calls to methods that weren't declared yet are remembered and verified at the end of the file,
+ * and a unit that refers to a variable that wasn't declared yet (such as a global variable declared
+ * further down the file) is kept, and validated again at the end of the file.
+ * Initialization of variables is checked as in the batch mode, where every global assignment
+ * counts within a method, even one further down the file: a method that reads a variable without
+ * a value is kept as well, and validated again at the end of the file, once all the global
+ * assignments were read.
+ * In the fused mode each line is parsed, added to the tables and semantically validated in one
+ * go, as soon as it is read, so that a line is never revisited. A unit whose line refers to a name
+ * that can't be found yet, or (within a method) reads a variable without a value, stops being
+ * validated line by line, and is validated as a whole at the end of the file.
+ * The declarations of the file may also be scanned before its lines are added (see
+ * DeclarationScanner). All the methods and global variables are then known from the first line on,
+ * and as in the batch mode every global assignment counts within the methods, so nothing is
+ * deferred: each unit is validated once it is complete (or each line once it is read, in the
+ * fused mode), and the first error is found as soon as its line is read.
+ * @author Alon and Michal
+ *
+ */
+class StreamingVerifier {
+
+	private static final Set<ErrorCode> UNINITIALIZED_ERRORS = EnumSet.of(
+			ErrorCode.VARIABLE_NOT_INITIALIZED, ErrorCode.ASSIGNED_VARIABLE_NOT_INITIALIZED,
+			ErrorCode.CONDITION_VARIABLE_NOT_INITIALIZED, ErrorCode.NO_VALUE_IN_SCOPE);
+
+	private final Tokenizer tokenizer;
+	private final SyntaxValidator syntaxValidator;
+	private final TableAndScopeMaker tableMaker;
+	private final SemanticsValidator semanticsValidator;
+	private List<Line> currentUnit;
+	private final List<List<Line>> deferredUnits;
+	private Line lastLine;
+	private final boolean isFused;
+	private final boolean scansDeclarations;
+	private boolean isCurrentUnitDeferred;
+
+	/**
+	 * Constructor
+	 * @param tokenizer The tokenizer to split lines with
+	 * @param isFused True iff each line should be semantically validated as soon as it is added
+	 * to the tables, rather than once its unit is complete
+	 */
+	StreamingVerifier(Tokenizer tokenizer, boolean isFused) {
+		this(tokenizer, isFused, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param tokenizer The tokenizer to split lines with
+	 * @param isFused True iff each line should be semantically validated as soon as it is added
+	 * to the tables, rather than once its unit is complete
+	 * @param scansDeclarations True iff the declarations of the file will be scanned (see
+	 * scanDeclarations) before its lines are added
+	 */
+	StreamingVerifier(Tokenizer tokenizer, boolean isFused, boolean scansDeclarations) {
+		this.tokenizer = tokenizer;
+		this.isFused = isFused;
+		this.scansDeclarations = scansDeclarations;
+		syntaxValidator = new SyntaxValidator();
+		tableMaker = new TableAndScopeMaker(true);
+		// Once the declarations were scanned, a call to an unknown method is an error at once.
+		semanticsValidator = new SemanticsValidator(tableMaker.getVariableTable(),
+				tableMaker.getMethodTable(), !scansDeclarations);
+		currentUnit = new ArrayList<Line>();
+		deferredUnits = new ArrayList<List<Line>>();
+	}
+
+	/**
+	 * Adds the declarations of the file to the tables, before any of its lines is added.
+	 * @param reader The lines of the file
+	 * @return The error found, or null if there is none so far
+	 * @throws IOException
+	 */
+	ErrorCode scanDeclarations(LineSource reader) throws IOException {
+		ErrorCode error = new DeclarationScanner(tokenizer, tableMaker).scan(reader);
+		tokenizer.startNewTokenBuffer();
+		return error;
+	}
+
+	/**
+	 * Verifies the next (non empty) line of the file.
+	 * @param lineContent Text of the line
+	 * @param lineNumber Number of the line
+	 * @param isComment True iff the line is known to start with a comment
+	 * @return The error found, or null if there is none so far
+	 */
+	ErrorCode addLine(CharSequence lineContent, int lineNumber, boolean isComment) {
+		Line line = tokenizer.tokenizeLine(lineContent, lineNumber, isComment);
+		ErrorCode error = syntaxValidator.check(line);
+		if (error == null) {
+			error = tableMaker.addLine(line);
+		}
+		if (error != null) {
+			return error;
+		}
+		Line previousLine = currentUnit.isEmpty() ? null : lastLine;
+		currentUnit.add(line);
+		lastLine = line;
+		if (isFused && !isCurrentUnitDeferred) {
+			error = semanticsValidator.checkNextLine(line, previousLine);
+			if (refersToLaterName(error)) {
+				// The unit may refer to a name that is declared further down the file.
+				isCurrentUnitDeferred = true;
+			} else if (error != null) {
+				return error;
+			}
+		}
+		if (tableMaker.getCurrentScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			return completeCurrentUnit();
+		}
+		return null;
+	}
+
+	/**
+	 * Completes the verification once all the lines of the file were added: validates the units
+	 * that were deferred, verifies the deferred method calls and checks that all brackets
+	 * were closed. As every line of the file may have been deferred, the deadline of the budget
+	 * is checked before every line that is validated, and before the deferred calls.
+	 * @param budget The budget of the file, or null if there is none
+	 * @return The error found, or null if the file is valid
+	 * @throws BudgetExceededException If the deadline of the budget passed
+	 */
+	ErrorCode finish(FileBudget budget) throws BudgetExceededException {
+		ErrorCode error;
+		for (List<Line> unit : deferredUnits) {
+			error = checkLines(unit, budget);
+			if (error != null) {
+				return error;
+			}
+		}
+		deferredUnits.clear();
+		if (!isFused || isCurrentUnitDeferred) {
+			error = checkLines(currentUnit, budget);
+			if (error != null) {
+				return error;
+			}
+		}
+		if (!scansDeclarations) {
+			checkTime(budget);
+			error = semanticsValidator.checkDeferredCalls();
+			if (error != null) {
+				return error;
+			}
+		}
+		return SemanticsValidator.checkLastLine(lastLine);
+	}
+
+	/*
+	 * Validates the lines of a unit like SemanticsValidator.checkLines, checking the deadline of
+	 * the budget before every line.
+	 */
+	private ErrorCode checkLines(List<Line> unit, FileBudget budget)
+			throws BudgetExceededException {
+		Line previousLine = null;
+		for (Line line : unit) {
+			checkTime(budget);
+			ErrorCode error = semanticsValidator.checkNextLine(line, previousLine);
+			if (error != null) {
+				return error;
+			}
+			previousLine = line;
+		}
+		return null;
+	}
+
+	private static void checkTime(FileBudget budget) throws BudgetExceededException {
+		if (budget != null) {
+			budget.checkTime();
+		}
+	}
+
+	/*
+	 * Validates a completed unit (unless its lines were already validated one by one) and releases
+	 * it, or keeps it for the end of the file if it refers to names that can't be found yet.
+	 */
+	private ErrorCode completeCurrentUnit() {
+		if (!isFused) {
+			ErrorCode error = semanticsValidator.checkLines(currentUnit);
+			if (refersToLaterName(error)) {
+				isCurrentUnitDeferred = true;
+			} else if (error != null) {
+				return error;
+			}
+		}
+		if (isCurrentUnitDeferred) {
+			deferredUnits.add(currentUnit);
+			tableMaker.retainLocalVariables();
+		} else {
+			tableMaker.releaseLocalVariables();
+		}
+		isCurrentUnitDeferred = false;
+		currentUnit = new ArrayList<Line>();
+		tokenizer.startNewTokenBuffer();
+		return null;
+	}
+
+	/*
+	 * Returns true iff the given error may be caused by a line further down the file, unless the
+	 * declarations were scanned: an invalid access to the tables may refer to a name that is
+	 * declared further down, and a variable read without a value within a method may be a global
+	 * variable that is assigned further down.
+	 */
+	private boolean refersToLaterName(ErrorCode error) {
+		if (scansDeclarations || error == null) {
+			return false;
+		}
+		return error.getCategory() == ErrorCode.Category.TABLE
+				|| (UNINITIALIZED_ERRORS.contains(error) && isCurrentUnitMethod());
+	}
+
+	/*
+	 * Returns true iff the current unit is a method (or a block), rather than a single line of the
+	 * global scope.
+	 */
+	private boolean isCurrentUnitMethod() {
+		return currentUnit.size() > 1;
+	}
+}
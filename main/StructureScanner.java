@@ -0,0 +1,174 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.LineSource;
+
+/**
+ * The cheapest tier of verification: a scan of the structure of the lines, which only looks at the
+ * first and last characters of each line that isn't blank or a comment, without splitting it into
+ * tokens. The first characters of a line tell what its first token, and thus its type, would be,
+ * and the scan holds the line to the checks of the syntax rules that only depend on its type and
+ * on its last token: a line must start with a letter, an underscore or a closing bracket, a
+ * closing bracket line must end with a closing bracket, a method declaration line with an opening
+ * bracket, and a declaration, assignment, call or return line with a semicolon (if and while
+ * lines aren't checked, as the syntax rules let them end anywhere). Like the full verification,
+ * the scan opens a block on every if, while and method declaration line and closes one on every
+ * closing bracket line, and rejects a closing bracket in the global scope or a last line that
+ * isn't in the global scope.
+ * The scan is meant to reject only files that the full verification rejects, so that screening
+ * with it never changes a verdict (VerifierCheck checks this), though the error that the scan
+ * reports may be another one than the first error of the full verification. A file that passes
+ * the scan may still be illegal.
+ * The lines of the global scope, which hold the declarations of the file, can be looked at further
+ * by overriding scanGlobalLine, while the lines within blocks are skipped by counting blocks.
+ * @author Alon and Michal
+ *
+ */
+class StructureScanner {
+
+	private static final int FIRST_LINE_NUMBER = 1;
+	private static final char LAST_BLANK_CHAR = ' ';
+	private static final char SEMICOLON = ';';
+	private static final char OPENING_BRACKET = '{';
+	private static final char CLOSING_BRACKET = '}';
+	private static final char OPENING_PARENTHESIS = '(';
+	private static final char UNDERSCORE = '_';
+	private static final String COMMENT_START = "//";
+	private static final String[] CONDITION_KEYWORDS = {"if", "while"};
+	private static final String VOID_KEYWORD = "void ";
+	// The whitespace of the regex patterns of the tokens (\s), which may come between if or
+	// while and the opening parenthesis.
+	private static final String REGEX_WHITESPACE = " \t\n\u000b\f\r";
+
+	/**
+	 * Scans the lines of the source.
+	 * @param reader The lines of the source
+	 * @return The error found, or null if the file passed the scan
+	 * @throws IOException
+	 */
+	ErrorCode scan(LineSource reader) throws IOException {
+		int depth = 0;
+		// Like the full verification, the blocks are checked by the scope of the last line, which
+		// is the scope that a line opens a block in, and the scope that a line closes a block to.
+		int lastLineDepth = 0;
+		int lineNumber = FIRST_LINE_NUMBER - 1;
+		while (reader.nextLine()) {
+			if (reader.isLineBlank()) {
+				continue;
+			}
+			lineNumber++;
+			if (reader.isLineComment()) {
+				lastLineDepth = depth;
+				continue;
+			}
+			CharSequence line = reader.getLine();
+			int first = 0;
+			while (first < line.length() && isSkipped(line.charAt(first))) {
+				first++;
+			}
+			if (first == line.length()) {
+				return ErrorCode.NO_TOKENS;
+			}
+			int last = line.length() - 1;
+			while (isSkipped(line.charAt(last))) {
+				last--;
+			}
+			char firstChar = line.charAt(first);
+			char lastChar = line.charAt(last);
+			if (firstChar == CLOSING_BRACKET) {
+				if (--depth < 0) {
+					return ErrorCode.TOO_MANY_CLOSING_BRACKETS;
+				}
+				lastLineDepth = depth;
+				if (lastChar != CLOSING_BRACKET) {
+					return ErrorCode.ILLEGAL_CLOSING_BRACKET_LINE;
+				}
+				continue;
+			}
+			lastLineDepth = depth;
+			if (startsWith(line, first, COMMENT_START)) {
+				continue;
+			}
+			if (!isAsciiLetter(firstChar) && firstChar != UNDERSCORE) {
+				return ErrorCode.NO_LEADING_KEYWORD;
+			}
+			boolean isGlobal = depth == 0;
+			if (startsCondition(line, first)) {
+				depth++;
+			} else if (startsWith(line, first, VOID_KEYWORD)) {
+				if (lastChar != OPENING_BRACKET) {
+					return ErrorCode.NO_OPENING_BRACKET_AT_END;
+				}
+				depth++;
+			} else if (lastChar != SEMICOLON) {
+				return ErrorCode.NO_SEMICOLON_AT_END;
+			}
+			if (isGlobal) {
+				ErrorCode error = scanGlobalLine(line, lineNumber);
+				if (error != null) {
+					return error;
+				}
+			}
+		}
+		if (lastLineDepth != 0) {
+			return ErrorCode.UNCLOSED_BRACKETS;
+		}
+		return null;
+	}
+
+	/**
+	 * Called for every line of the global scope that passed the scan (other than comments), in
+	 * order. Does nothing here.
+	 * @param line The text of the line
+	 * @param lineNumber Number of the line, counting the lines that aren't blank
+	 * @return The error found in the line, or null if there is none
+	 */
+	ErrorCode scanGlobalLine(CharSequence line, int lineNumber) {
+		return null;
+	}
+
+	/*
+	 * Returns true iff the char isn't part of any token at the ends of a line: whitespace, line
+	 * terminators (which the tokens skip) and control chars. A legal line may only start and end
+	 * with whitespace and line terminators around its tokens, so skipping more than these only
+	 * lets through lines that the full verification rejects anyway.
+	 */
+	private static boolean isSkipped(char c) {
+		return c <= LAST_BLANK_CHAR || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private static boolean isAsciiLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/*
+	 * Returns true iff the first token of the line is if or while, which is the keyword followed
+	 * by an opening parenthesis, with only whitespace between them.
+	 */
+	private static boolean startsCondition(CharSequence line, int start) {
+		for (String keyword : CONDITION_KEYWORDS) {
+			if (startsWith(line, start, keyword)) {
+				int next = start + keyword.length();
+				while (next < line.length() && REGEX_WHITESPACE.indexOf(line.charAt(next)) >= 0) {
+					next++;
+				}
+				return next < line.length() && line.charAt(next) == OPENING_PARENTHESIS;
+			}
+		}
+		return false;
+	}
+
+	private static boolean startsWith(CharSequence line, int start, String prefix) {
+		if (start + prefix.length() > line.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(start + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,105 @@
+package oop.ex6.main;
+
+import java.io.PrintStream;
+
+import oop.ex6.line.ErrorCode;
+
+/**
+ * The verdict on a single source file: 0 if the file is valid, 1 if it isn't (along with an
+ * explanation of the error), 2 if the file couldn't be read, and 3 if its verification was
+ * given up for breaking its budget (see FileBudget), along with the way it was broken.
+ * The explanation of an error found by the verifier is only put together when it is asked for.
+ * @author Alon and Michal
+ *
+ */
+class VerificationResult {
+
+	static final int LEGAL_CODE_MARKER = 0;
+	static final int ILLEGAL_CODE_MARKER = 1;
+	static final int IO_ERROR_MARK = 2;
+	static final int BUDGET_EXCEEDED_MARK = 3;
+
+	private static final VerificationResult LEGAL = 
+			new VerificationResult(LEGAL_CODE_MARKER, null, null);
+	private static final VerificationResult IO_ERROR = 
+			new VerificationResult(IO_ERROR_MARK, null, null);
+
+	private final int code;
+	private final String message;
+	private final ErrorCode error;
+
+	private VerificationResult(int code, String message, ErrorCode error) {
+		this.code = code;
+		this.message = message;
+		this.error = error;
+	}
+
+	/**
+	 * @return The result of a valid file
+	 */
+	static VerificationResult legal() {
+		return LEGAL;
+	}
+
+	/**
+	 * @param message Explanation of the error
+	 * @return The result of an invalid file
+	 */
+	static VerificationResult illegal(String message) {
+		return new VerificationResult(ILLEGAL_CODE_MARKER, message, null);
+	}
+
+	/**
+	 * @param error The error found in the file
+	 * @return The result of an invalid file, explained by the description of the error
+	 */
+	static VerificationResult illegal(ErrorCode error) {
+		return new VerificationResult(ILLEGAL_CODE_MARKER, null, error);
+	}
+
+	/**
+	 * @return The result of a file that couldn't be read
+	 */
+	static VerificationResult ioError() {
+		return IO_ERROR;
+	}
+
+	/**
+	 * @param message Explanation of the way the budget was broken
+	 * @return The result of a file whose verification broke its budget
+	 */
+	static VerificationResult budgetExceeded(String message) {
+		return new VerificationResult(BUDGET_EXCEEDED_MARK, message, null);
+	}
+
+	/**
+	 * @return 0, 1, 2 or 3, as described above
+	 */
+	int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return Explanation of the error, or null if there is none.
+	 */
+	String getMessage() {
+		if (error != null) {
+			return error.describe();
+		}
+		return message;
+	}
+
+	/**
+	 * Prints the result the way the verifier reports a single file: the code to the output stream
+	 * and the explanation, if there is one, to the error stream.
+	 * @param out The output stream
+	 * @param err The error stream
+	 */
+	void print(PrintStream out, PrintStream err) {
+		out.println(code);
+		String explanation = getMessage();
+		if (explanation != null) {
+			err.println(explanation);
+		}
+	}
+}
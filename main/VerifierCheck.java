@@ -0,0 +1,454 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.LineSource;
+import oop.ex6.line.MappedSourceReader;
+import oop.ex6.line.StringLineSource;
+import oop.ex6.line.Tokenizer;
+
+/**
+ * Checks the equivalences that the verifier is built on, over random code made by a
+ * SourceGenerator and over any given files: DfaLexer must split every line into exactly the same
+ * tokens as the regex alternation of the token types, and a file may only be rejected by a lower
+ * tier of verification (see SourceVerifier.Tier) if the full verification rejects it, so that
+ * screening files with the auto tier gives the verdicts of the full verification, and every mode
+ * of verification (see SourceVerifier.Mode), as well as the batch mode with its tokens off the
+ * heap, on several threads or with a time budget, must give the verdict of the batch mode. Besides
+ * the generated code, a few edge cases (such as an empty file) are checked, both as code and as
+ * files. A few regression cases, each a rule of initialization or of the order of errors that the
+ * verifier once got wrong, must also get their expected verdict and error. Finally, generated files are verified on several threads through a result cache that is
+ * small enough to be evicted all the time (see ResultCache), twice, and every verdict must be the
+ * verdict of the verification without a cache.
+ * Every disagreement is printed along with the code it was found in, and a summary of the checks
+ * follows. The same seed always checks the same code, so a failure can be reproduced.
+ * @author Alon and Michal
+ *
+ */
+public class VerifierCheck {
+
+	private static final String SEED_OPTION = "--seed=";
+	private static final String FILES_OPTION = "--files=";
+	private static final long DEFAULT_SEED = 1;
+	private static final int DEFAULT_FILES = 2000;
+	private static final int NOISE_LINES_PER_FILE = 50;
+	private static final int MAX_REPORTED_FAILURES = 10;
+	private static final int FAILURE_STATUS = 1;
+	private static final String[] EDGE_CASES = {"", "\n", " \n\t\n\n", "// A comment\n",
+			"\n// A comment\n\n"};
+	private static final String EDGE_CASE_PREFIX = "edge";
+	private static final RegressionCase[] REGRESSION_CASES = {
+		new RegressionCase("a variable assigned the value of an initialized variable",
+				"int b = 1;\nint a;\na = b;\n", null),
+		new RegressionCase("a parameter read in a block of its method",
+				"void foo(int x){\nif (true){\nint y = x;\n}\nreturn;\n}\n", null),
+		new RegressionCase("a local variable read in a block within its scope",
+				"void foo(){\nint x = 1;\nwhile (true){\nint y = x;\n}\nreturn;\n}\n", null),
+		new RegressionCase("a variable assigned and read in the same block",
+				"void foo(){\nint a;\nif (true){\na = 1;\nint b = a;\n}\nreturn;\n}\n", null),
+		new RegressionCase("a variable assigned in an if block and read after it",
+				"void foo(){\nint a;\nif (true){\na = 1;\n}\nint b = a;\nreturn;\n}\n",
+				ErrorCode.VARIABLE_NOT_INITIALIZED),
+		new RegressionCase("a variable assigned in a while block and read after it",
+				"void foo(){\nint a;\nwhile (true){\na = 1;\n}\nint b = a;\nreturn;\n}\n",
+				ErrorCode.VARIABLE_NOT_INITIALIZED),
+		new RegressionCase("a global variable read in a method above its assignment",
+				"int g;\nvoid foo(){\nint y = g;\nreturn;\n}\ng = 5;\n", null),
+		new RegressionCase("a global variable read in a method and never assigned",
+				"int g;\nvoid foo(){\nint y = g;\nreturn;\n}\n",
+				ErrorCode.VARIABLE_NOT_INITIALIZED),
+		new RegressionCase("a wrong value above an undeclared name",
+				"int a = \"x\";\nint b = c;\n", ErrorCode.VALUE_TYPE_MISMATCH)};
+	private static final String SOURCE_FILE_SUFFIX = ".sjava";
+	private static final int PARALLELISM = 2;
+	private static final long TIME_BUDGET = 60000;
+	private static final int CACHE_CHECK_FILES = 400;
+	private static final int CACHE_CHECK_THREADS = 8;
+	private static final int CACHE_CHECK_RUNS = 2;
+	// Smaller than a few entries, so that almost every write evicts entries.
+	private static final long CACHE_CHECK_SIZE = 100;
+	private static final String CACHE_CHECK_PREFIX = "cache";
+	private static final String CACHE_DIRECTORY_NAME = "cache";
+
+	private final SourceVerifier fullVerifier;
+	private final SourceVerifier[] lowerTierVerifiers;
+	private final SourceVerifier autoVerifier;
+	private final List<String> variantNames;
+	private final List<SourceVerifier> variantVerifiers;
+	private int checkedLines;
+	private int checkedFiles;
+	private int lexerFailures;
+	private int tierFailures;
+	private int modeFailures;
+	private int regressionFailures;
+	private int cachedFiles;
+	private int cacheFailures;
+	private int failures;
+
+	private VerifierCheck() {
+		fullVerifier = createVerifier(SourceVerifier.Tier.L2);
+		lowerTierVerifiers = new SourceVerifier[] {createVerifier(SourceVerifier.Tier.L0),
+				createVerifier(SourceVerifier.Tier.L1)};
+		autoVerifier = createVerifier(SourceVerifier.Tier.AUTO);
+		variantNames = new ArrayList<String>();
+		variantVerifiers = new ArrayList<SourceVerifier>();
+		for (SourceVerifier.Mode mode : SourceVerifier.Mode.values()) {
+			addVariant("The " + mode + " mode", mode, 0, false, 0);
+		}
+		addVariant("The parallel batch mode", SourceVerifier.Mode.BATCH, PARALLELISM, false, 0);
+		addVariant("The off heap batch mode", SourceVerifier.Mode.BATCH, 0, true, 0);
+		addVariant("The batch mode with a time budget", SourceVerifier.Mode.BATCH, 0, false,
+				TIME_BUDGET);
+	}
+
+	/**
+	 * Main method. Runs the checks.
+	 * @param args Optionally --seed=seed and --files=count, the seed of the generated code and the
+	 * number of files to generate (2000 by default), followed by paths of s-Java files, directories
+	 * and list files to check as well, as given to Sjavac
+	 */
+	public static void main(String[] args) {
+		long seed = DEFAULT_SEED;
+		int files = DEFAULT_FILES;
+		int firstFileArg = 0;
+		while (firstFileArg < args.length && args[firstFileArg].startsWith("--")) {
+			String option = args[firstFileArg];
+			try {
+				if (option.startsWith(SEED_OPTION)) {
+					seed = Long.parseLong(option.substring(SEED_OPTION.length()));
+				} else if (option.startsWith(FILES_OPTION)) {
+					files = Integer.parseInt(option.substring(FILES_OPTION.length()));
+				} else {
+					throw new IllegalArgumentException();
+				}
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown option: " + option);
+				return;
+			}
+			firstFileArg++;
+		}
+		List<Path> paths;
+		try {
+			paths = BatchVerifier.collectFiles(Arrays.asList(args).subList(firstFileArg,
+					args.length));
+		} catch (IOException e) {
+			System.err.println("Can't read the list of files: " + e.getMessage());
+			return;
+		}
+		VerifierCheck check = new VerifierCheck();
+		SourceGenerator generator = new SourceGenerator(seed);
+		List<String> cacheCheckSources = new ArrayList<String>();
+		for (int i = 0; i < files; i++) {
+			String source = generator.nextFile();
+			if (cacheCheckSources.size() < CACHE_CHECK_FILES) {
+				cacheCheckSources.add(source);
+			}
+			List<String> noiseLines = new ArrayList<String>();
+			for (int j = 0; j < NOISE_LINES_PER_FILE; j++) {
+				noiseLines.add(generator.nextNoiseLine());
+			}
+			String sourceName = "generated file " + i + " of seed " + seed;
+			check.checkLexers(new StringLineSource(source), noiseLines, sourceName);
+			check.checkVerdicts(verifier -> verifier.verifySource(source), sourceName);
+		}
+		for (int i = 0; i < EDGE_CASES.length; i++) {
+			check.checkEdgeCase(EDGE_CASES[i], "edge case " + i);
+		}
+		for (RegressionCase regressionCase : REGRESSION_CASES) {
+			check.checkRegressionCase(regressionCase);
+		}
+		for (Path path : paths) {
+			try {
+				check.checkLexers(new MappedSourceReader(path), new ArrayList<String>(),
+						path.toString());
+			} catch (IOException e) {
+				System.err.println("Can't read " + path + ": " + e.getMessage());
+			}
+			check.checkVerdicts(verifier -> verifier.verify(path), path.toString());
+		}
+		check.checkCache(cacheCheckSources);
+		System.out.println("Lexers: " + check.checkedLines + " lines, " + check.lexerFailures
+				+ " disagreements");
+		System.out.println("Tiers: " + check.checkedFiles + " files, " + check.tierFailures
+				+ " verdicts that differ from the full verification");
+		System.out.println("Modes: " + check.checkedFiles + " files, " + check.modeFailures
+				+ " verdicts that differ from the batch mode");
+		System.out.println("Regressions: " + REGRESSION_CASES.length + " cases, "
+				+ check.regressionFailures + " with another verdict or error than expected");
+		System.out.println("Cache: " + check.cachedFiles + " files, " + check.cacheFailures
+				+ " verdicts that differ from the verification without a cache");
+		if (check.failures > 0) {
+			System.exit(FAILURE_STATUS);
+		}
+	}
+
+	/*
+	 * Splits every line of the source, and then every one of the extra lines, with both lexers.
+	 */
+	private void checkLexers(LineSource source, List<String> extraLines, String sourceName) {
+		Tokenizer tokenizer = new Tokenizer(Tokenizer.LexerMode.CROSS_CHECK);
+		int lineNumber = 0;
+		try (LineSource reader = source) {
+			while (reader.nextLine()) {
+				checkLine(tokenizer, reader.getLine(), ++lineNumber, sourceName);
+			}
+		} catch (IOException e) {
+			System.err.println("Can't read " + sourceName + ": " + e.getMessage());
+		}
+		for (String line : extraLines) {
+			checkLine(tokenizer, line, ++lineNumber, sourceName);
+		}
+	}
+
+	private void checkLine(Tokenizer tokenizer, CharSequence line, int lineNumber,
+			                                                                String sourceName) {
+		checkedLines++;
+		try {
+			tokenizer.tokenizeLine(line, lineNumber);
+		} catch (IllegalStateException e) {
+			lexerFailures++;
+			reportFailure("The lexers disagree on line " + lineNumber + " of " + sourceName
+					+ ": " + escape(line));
+		}
+	}
+
+	/*
+	 * Verifies the source up to every tier and in every mode, and compares the verdicts with the
+	 * verdict of the full verification in the batch mode.
+	 */
+	private void checkVerdicts(Verification verification, String sourceName) {
+		checkedFiles++;
+		int fullCode = getCode(verification, fullVerifier);
+		if (fullCode == VerificationResult.LEGAL_CODE_MARKER) {
+			for (SourceVerifier lowerTierVerifier : lowerTierVerifiers) {
+				if (getCode(verification, lowerTierVerifier) != fullCode) {
+					tierFailures++;
+					reportFailure("A lower tier rejects " + sourceName
+							+ ", which the full verification accepts");
+				}
+			}
+		}
+		if (getCode(verification, autoVerifier) != fullCode) {
+			tierFailures++;
+			reportFailure("The auto tier gives another verdict than the full verification on "
+					+ sourceName);
+		}
+		for (int i = 0; i < variantVerifiers.size(); i++) {
+			if (getCode(verification, variantVerifiers.get(i)) != fullCode) {
+				modeFailures++;
+				reportFailure(variantNames.get(i) + " gives another verdict than the batch mode on "
+						+ sourceName);
+			}
+		}
+	}
+
+	/*
+	 * Checks the verdicts on the code of an edge case, given as code and as a file.
+	 */
+	private void checkEdgeCase(String source, String sourceName) {
+		checkVerdicts(verifier -> verifier.verifySource(source), sourceName);
+		Path file;
+		try {
+			file = Files.createTempFile(EDGE_CASE_PREFIX, SOURCE_FILE_SUFFIX);
+			Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			System.err.println("Can't write " + sourceName + ": " + e.getMessage());
+			return;
+		}
+		try {
+			checkVerdicts(verifier -> verifier.verify(file), sourceName + " as a file");
+		} finally {
+			try {
+				Files.delete(file);
+			} catch (IOException e) {
+				System.err.println("Can't delete " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * Checks the verdicts on the code of a regression case, and that the full verification finds
+	 * the expected error in it.
+	 */
+	private void checkRegressionCase(RegressionCase regressionCase) {
+		String source = regressionCase.source;
+		checkVerdicts(verifier -> verifier.verifySource(source), regressionCase.name);
+		VerificationResult result = fullVerifier.verifySource(source);
+		ErrorCode expectedError = regressionCase.expectedError;
+		String expectedMessage = expectedError == null ? null : expectedError.describe();
+		int expectedCode = expectedError == null ? VerificationResult.LEGAL_CODE_MARKER
+				: VerificationResult.ILLEGAL_CODE_MARKER;
+		if (result.getCode() != expectedCode
+				|| !String.valueOf(result.getMessage()).equals(String.valueOf(expectedMessage))) {
+			regressionFailures++;
+			reportFailure("The verifier gives " + result.getCode() + " (" + result.getMessage()
+					+ ") on " + regressionCase.name + ", rather than " + expectedCode + " ("
+					+ expectedMessage + ")");
+		}
+	}
+
+	/*
+	 * Writes the sources to files, and verifies them on several threads through a small cache.
+	 */
+	private void checkCache(List<String> sources) {
+		Path directory;
+		try {
+			directory = Files.createTempDirectory(CACHE_CHECK_PREFIX);
+		} catch (IOException e) {
+			System.err.println("Can't create a directory for the cache: " + e.getMessage());
+			return;
+		}
+		try {
+			List<Path> files = new ArrayList<Path>();
+			for (int i = 0; i < sources.size(); i++) {
+				Path file = directory.resolve(i + SOURCE_FILE_SUFFIX);
+				Files.write(file, sources.get(i).getBytes(StandardCharsets.UTF_8));
+				files.add(file);
+			}
+			ResultCache cache = new ResultCache(directory.resolve(CACHE_DIRECTORY_NAME),
+					CACHE_CHECK_SIZE, "");
+			SourceVerifier cachedVerifier = new SourceVerifier(Tokenizer.LexerMode.DFA,
+					SourceVerifier.Mode.BATCH, 0, 0, SourceVerifier.Tier.L2, false, 0, 0, cache);
+			for (int run = 0; run < CACHE_CHECK_RUNS; run++) {
+				checkCachedVerdicts(files, cachedVerifier);
+			}
+		} catch (IOException e) {
+			System.err.println("Can't write the files for the cache: " + e.getMessage());
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	private void checkCachedVerdicts(List<Path> files, SourceVerifier cachedVerifier) {
+		ExecutorService pool = BatchVerifier.newWorkerPool(CACHE_CHECK_THREADS);
+		try {
+			List<Future<Integer>> cachedCodes = new ArrayList<Future<Integer>>();
+			for (Path file : files) {
+				cachedCodes.add(pool.submit(() -> getCode(verifier -> verifier.verify(file),
+						cachedVerifier)));
+			}
+			for (int i = 0; i < files.size(); i++) {
+				Path file = files.get(i);
+				cachedFiles++;
+				if (cachedCodes.get(i).get() != getCode(verifier -> verifier.verify(file),
+						fullVerifier)) {
+					cacheFailures++;
+					reportFailure("The cache gives another verdict than the verification without"
+							+ " a cache on generated file " + i);
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			cacheFailures++;
+			reportFailure("The check of the cache failed: " + e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void deleteDirectory(Path directory) {
+		try (Stream<Path> walk = Files.walk(directory)) {
+			for (Path path : walk.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		} catch (IOException e) {
+			System.err.println("Can't delete " + directory + ": " + e.getMessage());
+		}
+	}
+
+	private void addVariant(String name, SourceVerifier.Mode mode, int parallelism,
+			boolean isOffHeap, long timeBudget) {
+		variantNames.add(name);
+		variantVerifiers.add(new SourceVerifier(Tokenizer.LexerMode.DFA, mode, parallelism, 0,
+				SourceVerifier.Tier.L2, isOffHeap, 0, timeBudget, null));
+	}
+
+	/*
+	 * Returns the code of the verdict, where a failure of the verifier itself counts as an illegal
+	 * file, as it does in a batch (see BatchVerifier).
+	 */
+	private static int getCode(Verification verification, SourceVerifier verifier) {
+		try {
+			return verification.verify(verifier).getCode();
+		} catch (RuntimeException e) {
+			return VerificationResult.ILLEGAL_CODE_MARKER;
+		}
+	}
+
+	private static SourceVerifier createVerifier(SourceVerifier.Tier tier) {
+		return new SourceVerifier(Tokenizer.LexerMode.DFA, SourceVerifier.Mode.BATCH, 0, 0, tier,
+				false, 0, 0, null);
+	}
+
+	private void reportFailure(String description) {
+		failures++;
+		if (failures <= MAX_REPORTED_FAILURES) {
+			System.out.println(description);
+		}
+	}
+
+	/*
+	 * Returns the text with the chars that aren't printable ASCII written as unicode escapes.
+	 */
+	private static String escape(CharSequence text) {
+		StringBuilder escaped = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= ' ' && c < '\u007f') {
+				escaped.append(c);
+			} else {
+				escaped.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * A short piece of code, and the error the verifier should find in it.
+	 * @author Alon and Michal
+	 *
+	 */
+	private static class RegressionCase {
+
+		private final String name;
+		private final String source;
+		private final ErrorCode expectedError;
+
+		/**
+		 * Constructor
+		 * @param name Description of the case
+		 * @param source The code
+		 * @param expectedError The first error of the code, or null if it is legal
+		 */
+		private RegressionCase(String name, String source, ErrorCode expectedError) {
+			this.name = name;
+			this.source = source;
+			this.expectedError = expectedError;
+		}
+	}
+
+	/**
+	 * Verifies a single source, generated or read from a file, with the given verifier.
+	 * @author Alon and Michal
+	 *
+	 */
+	private interface Verification {
+
+		/**
+		 * @param verifier The verifier
+		 * @return The verdict of the verifier on the source
+		 */
+		VerificationResult verify(SourceVerifier verifier);
+	}
+}
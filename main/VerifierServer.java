@@ -0,0 +1,167 @@
+package oop.ex6.main;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * A long running verifier, that listens on a port of the loopback address only, so that files can
+ * be verified without starting a new JVM (and loading and compiling the verifier anew) for each
+ * one. A TCP port rather than a Unix domain socket lets the server and the client agree on where
+ * to meet by a number alone, and leaves no socket file behind when the server is killed. Unlike a
+ * socket file, whose permissions could keep them out, the port is open to the other users of the
+ * host, who may ask for the verdict on any file the server can read.
+ * Every connection carries a single request, which is a header line followed (for inline code)
+ * by the code itself:
+ * "FILE path" - verifies the file at the given (absolute) path.
+ * "SOURCE length" - verifies the code in the following length bytes, encoded in UTF-8.
+ * The answer is the verdict code on the first line, followed by the explanation of the error if
+ * there is one, after which the connection is closed. Every request that was read is answered,
+ * even if the verifier itself fails on it.
+ * Requests are served on a fixed pool of threads, all sharing the same SourceVerifier.
+ * @author Alon and Michal
+ *
+ */
+class VerifierServer {
+
+	static final int DEFAULT_PORT = 7471;
+	static final String FILE_REQUEST = "FILE";
+	static final String SOURCE_REQUEST = "SOURCE";
+	static final String REQUEST_SEPARATOR = " ";
+	static final char LINE_END = '\n';
+
+	private static final int MAX_HEADER_LENGTH = 1 << 16;
+	private static final int MAX_SOURCE_LENGTH = 1 << 26;
+	private static final int BACKLOG = 256;
+
+	private final SourceVerifier verifier;
+	private final int port;
+	private final int threads;
+
+	/**
+	 * Constructor
+	 * @param verifier The verifier to verify the requested code with
+	 * @param port Port to listen on
+	 * @param threads Number of requests to serve at once
+	 */
+	VerifierServer(SourceVerifier verifier, int port, int threads) {
+		this.verifier = verifier;
+		this.port = port;
+		this.threads = threads;
+	}
+
+	/**
+	 * Serves requests until the process is stopped.
+	 * @param log Stream to report the state of the server to
+	 * @throws IOException If the port can't be listened on
+	 */
+	void serve(PrintStream log) throws IOException {
+		ExecutorService pool = BatchVerifier.newWorkerPool(threads);
+		try (ServerSocket serverSocket = new ServerSocket(port, BACKLOG,
+				InetAddress.getLoopbackAddress())) {
+			log.println("Verifier listening on port " + serverSocket.getLocalPort());
+			while (true) {
+				Socket connection = serverSocket.accept();
+				pool.execute(() -> handle(connection));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void handle(Socket connection) {
+		try (Socket socket = connection) {
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			VerificationResult result;
+			try {
+				result = answer(in);
+			} catch (ProtocolException e) {
+				result = VerificationResult.illegal("Bad request: " + e.getMessage());
+			}
+			reply(socket.getOutputStream(), result);
+		} catch (IOException e) {
+			// The client went away, there is no one to answer to.
+		}
+	}
+
+	private VerificationResult answer(InputStream in) throws IOException {
+		String header = readHeader(in);
+		int separator = header.indexOf(REQUEST_SEPARATOR);
+		if (separator < 0) {
+			throw new ProtocolException(header);
+		}
+		String request = header.substring(0, separator);
+		String argument = header.substring(separator + REQUEST_SEPARATOR.length());
+		if (request.equals(FILE_REQUEST)) {
+			return verify(() -> verifier.verify(Paths.get(argument)));
+		}
+		if (request.equals(SOURCE_REQUEST)) {
+			int length;
+			try {
+				length = Integer.parseInt(argument);
+			} catch (NumberFormatException e) {
+				throw new ProtocolException("source length " + argument);
+			}
+			if (length < 0 || length > MAX_SOURCE_LENGTH) {
+				throw new ProtocolException("source length " + length);
+			}
+			byte[] source = in.readNBytes(length);
+			if (source.length != length) {
+				throw new IOException("Source ended early");
+			}
+			return verify(() -> verifier.verifySource(new String(source,
+					StandardCharsets.UTF_8)));
+		}
+		throw new ProtocolException(request);
+	}
+
+	/*
+	 * Returns the verdict of the verification, where a failure of the verifier itself, of any
+	 * kind, counts as an illegal file, as it does in a batch (see BatchVerifier).
+	 */
+	private static VerificationResult verify(Supplier<VerificationResult> verification) {
+		try {
+			return verification.get();
+		} catch (Throwable e) {
+			// The verifier failed on the code itself rather than finding an error in it.
+			return VerificationResult.illegal("Verifier error: " + e);
+		}
+	}
+
+	private static String readHeader(InputStream in) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		int nextByte;
+		while ((nextByte = in.read()) != LINE_END) {
+			if (nextByte < 0) {
+				throw new IOException("Request ended early");
+			}
+			if (header.size() == MAX_HEADER_LENGTH) {
+				throw new ProtocolException("header too long");
+			}
+			header.write(nextByte);
+		}
+		return new String(header.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void reply(OutputStream out, VerificationResult result) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.write(result.getCode() + String.valueOf(LINE_END));
+		if (result.getMessage() != null) {
+			writer.write(result.getMessage() + LINE_END);
+		}
+		writer.flush();
+	}
+}
@@ -0,0 +1,144 @@
+package oop.ex6.tables;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which variables are definitely assigned a value, along a single forward walk over the lines
+ * of a file. Every variable has a slot (see Variable.getSlot), and the assignments are kept as two
+ * bitsets over the slots:
+ * The walk's bitset holds the variables assigned by the lines walked so far, in the scope of the
+ * current line or in a scope that holds it. The slots set within each scope, other than the global
+ * one, are also kept on a trail, so that leaving the scope clears them again: a variable that is only
+ * assigned within an if or while block isn't assigned after the block, nor in the next method.
+ * The methods' bitset holds the variables that are assigned everywhere within the methods: the
+ * parameters of every method, and the global variables that are assigned a value somewhere in the
+ * global scope, even further down the file.
+ * Whether a variable is assigned at a line thus takes one or two bit tests.
+ * @author Alon and Michal
+ *
+ */
+class DefiniteAssignment {
+
+	private static final int WORD_INDEX_SHIFT = 6;
+	private static final int INITIAL_WORDS = 4;
+	private static final int INITIAL_DEPTH = 8;
+	private static final int GROWTH_FACTOR = 2;
+
+	private final ScopeTree scopeTree;
+	private long[] assigned;
+	private long[] assignedInMethods;
+	private int[] trail;
+	private int trailSize;
+	private int[] openScopes;
+	private int[] trailStarts;
+	private int depth;
+
+	/**
+	 * Constructor. The walk starts in the global scope, with no variable assigned.
+	 * @param scopeTree The tree of the scopes of the file
+	 */
+	DefiniteAssignment(ScopeTree scopeTree) {
+		this.scopeTree = scopeTree;
+		assigned = new long[INITIAL_WORDS];
+		assignedInMethods = new long[INITIAL_WORDS];
+		trail = new int[INITIAL_DEPTH];
+		trailSize = 0;
+		openScopes = new int[INITIAL_DEPTH];
+		trailStarts = new int[INITIAL_DEPTH];
+		openScopes[0] = ScopeTree.GLOBAL_SCOPE;
+		depth = 1;
+	}
+
+	/**
+	 * Moves the walk to a line of the given scope: leaves the scopes that don't hold it, clearing
+	 * the assignments made in them, and enters it.
+	 * @param scope Id of the scope of the next line
+	 */
+	void moveTo(int scope) {
+		while (depth > 1 && !scopeTree.isWithin(openScopes[depth - 1], scope)) {
+			depth--;
+			while (trailSize > trailStarts[depth]) {
+				int slot = trail[--trailSize];
+				assigned[slot >>> WORD_INDEX_SHIFT] &= ~(1L << slot);
+			}
+		}
+		if (openScopes[depth - 1] != scope) {
+			if (depth == openScopes.length) {
+				openScopes = Arrays.copyOf(openScopes, depth * GROWTH_FACTOR);
+				trailStarts = Arrays.copyOf(trailStarts, depth * GROWTH_FACTOR);
+			}
+			openScopes[depth] = scope;
+			trailStarts[depth] = trailSize;
+			depth++;
+		}
+	}
+
+	/**
+	 * Marks the variable as assigned from the current line of the walk on, until the walk leaves
+	 * the current scope.
+	 * @param slot Slot of the variable
+	 */
+	void assign(int slot) {
+		assigned = ensureCapacity(assigned, slot);
+		long bit = 1L << slot;
+		if ((assigned[slot >>> WORD_INDEX_SHIFT] & bit) != 0) {
+			return;
+		}
+		assigned[slot >>> WORD_INDEX_SHIFT] |= bit;
+		if (depth > 1) {
+			if (trailSize == trail.length) {
+				trail = Arrays.copyOf(trail, trailSize * GROWTH_FACTOR);
+			}
+			trail[trailSize++] = slot;
+		}
+	}
+
+	/**
+	 * Marks the variable as assigned everywhere within the methods.
+	 * @param slot Slot of the variable
+	 */
+	void assignInMethods(int slot) {
+		assignedInMethods = ensureCapacity(assignedInMethods, slot);
+		assignedInMethods[slot >>> WORD_INDEX_SHIFT] |= 1L << slot;
+	}
+
+	/**
+	 * Forgets the assignments of a variable that was removed, so that its slot can be given to
+	 * another variable. The walk must have left the scope of the variable.
+	 * @param slot Slot of the variable
+	 */
+	void release(int slot) {
+		clear(assigned, slot);
+		clear(assignedInMethods, slot);
+	}
+
+	/**
+	 * @param slot Slot of a variable
+	 * @param scope Id of the scope of the current line of the walk
+	 * @return True iff the variable is definitely assigned at the current line
+	 */
+	boolean isAssigned(int slot, int scope) {
+		return isSet(assigned, slot)
+				|| (scope != ScopeTree.GLOBAL_SCOPE && isSet(assignedInMethods, slot));
+	}
+
+	private static boolean isSet(long[] bits, int slot) {
+		int word = slot >>> WORD_INDEX_SHIFT;
+		return word < bits.length && (bits[word] & (1L << slot)) != 0;
+	}
+
+	private static void clear(long[] bits, int slot) {
+		int word = slot >>> WORD_INDEX_SHIFT;
+		if (word < bits.length) {
+			bits[word] &= ~(1L << slot);
+		}
+	}
+
+	private static long[] ensureCapacity(long[] bits, int slot) {
+		int word = slot >>> WORD_INDEX_SHIFT;
+		if (word < bits.length) {
+			return bits;
+		}
+		return Arrays.copyOf(bits, Math.max(word + 1, bits.length * GROWTH_FACTOR));
+	}
+}
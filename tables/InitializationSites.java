@@ -0,0 +1,123 @@
+package oop.ex6.tables;
+
+import java.util.Arrays;
+
+/**
+ * The places where a single variable is assigned a value, which answer whether the variable was
+ * assigned before a given line in any order, unlike the forward walk of DefiniteAssignment.
+ * An assignment in the global scope only keeps its line: the first such line is all that is needed,
+ * as a global assignment counts for every line after it and everywhere within the methods.
+ * The assignments within methods are kept as a sorted array of sites, each site packing the number
+ * of its line and the id of its scope into a long. A site that adds nothing (after an assignment in
+ * the same scope or around it) isn't kept, so a variable assigned again and again costs no more than
+ * a variable assigned once.
+ * @author Alon and Michal
+ *
+ */
+class InitializationSites {
+
+	private static final int NO_LINE = Integer.MAX_VALUE;
+	private static final int LINE_SHIFT = 32;
+	private static final long SCOPE_MASK = 0xFFFFFFFFL;
+	private static final int INITIAL_CAPACITY = 2;
+	private static final int GROWTH_FACTOR = 2;
+
+	private int firstGlobalLine;
+	private long[] sites;
+	private int size;
+
+	/**
+	 * Constructor. Creates the sites of a variable that wasn't assigned yet.
+	 */
+	InitializationSites() {
+		firstGlobalLine = NO_LINE;
+		size = 0;
+	}
+
+	/**
+	 * Adds an assignment of the variable. Assignments are usually added in the order of their
+	 * lines, but may come in any order.
+	 * @param lineNumber Number of the line of the assignment
+	 * @param scope Id of the scope of the line
+	 * @param scopeTree The tree of the scopes of the file
+	 */
+	void add(int lineNumber, int scope, ScopeTree scopeTree) {
+		if (scope == ScopeTree.GLOBAL_SCOPE) {
+			firstGlobalLine = Math.min(firstGlobalLine, lineNumber);
+			return;
+		}
+		if (firstGlobalLine != NO_LINE) {
+			// The variable is already assigned everywhere within the methods.
+			return;
+		}
+		long site = pack(lineNumber, scope);
+		int index = firstSiteFrom(site + 1);
+		if (index > 0 && scopeTree.isWithin(scopeOf(sites[index - 1]), scope)) {
+			return;
+		}
+		if (sites == null) {
+			sites = new long[INITIAL_CAPACITY];
+		} else if (size == sites.length) {
+			sites = Arrays.copyOf(sites, size * GROWTH_FACTOR);
+		}
+		System.arraycopy(sites, index, sites, index + 1, size - index);
+		sites[index] = site;
+		size++;
+	}
+
+	/**
+	 * @param lineNumber Number of a line
+	 * @param scope Id of the scope of the line
+	 * @param scopeTree The tree of the scopes of the file
+	 * @return True iff the variable is assigned before the line, in the line's scope or in a scope
+	 * that holds it, or anywhere in the global scope if the line is within a method
+	 */
+	boolean hasSiteBefore(int lineNumber, int scope, ScopeTree scopeTree) {
+		if (firstGlobalLine < lineNumber) {
+			return true;
+		}
+		if (scope == ScopeTree.GLOBAL_SCOPE) {
+			return false;
+		}
+		if (firstGlobalLine != NO_LINE) {
+			return true;
+		}
+		int method = scope;
+		while (scopeTree.getParent(method) != ScopeTree.GLOBAL_SCOPE) {
+			method = scopeTree.getParent(method);
+		}
+		// The sites of the method are the last ones before the line, as its lines are consecutive.
+		for (int i = firstSiteFrom(pack(lineNumber, ScopeTree.GLOBAL_SCOPE)) - 1;
+				i >= 0 && scopeTree.isWithin(method, scopeOf(sites[i])); i--) {
+			if (scopeTree.isWithin(scopeOf(sites[i]), scope)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns the index of the first site that isn't smaller than the given one.
+	 */
+	private int firstSiteFrom(long site) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sites[middle] < site) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static long pack(int lineNumber, int scope) {
+		return ((long) lineNumber << LINE_SHIFT) | scope;
+	}
+
+	private static int scopeOf(long site) {
+		return (int) (site & SCOPE_MASK);
+	}
+}
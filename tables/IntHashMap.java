@@ -0,0 +1,113 @@
+package oop.ex6.tables;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys (such as the interned id of a name) to objects. Keys are kept in a
+ * primitive array and probed linearly, so a lookup never boxes the key or hashes a String.
+ * Negative keys are not supported.
+ * @author Alon and Michal
+ *
+ * @param <V> Type of the values in the map
+ */
+class IntHashMap<V> {
+
+	private static final int EMPTY_KEY = -1;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int MAX_LOAD_DIVISOR = 2;
+	private static final int GROWTH_FACTOR = 2;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty map.
+	 */
+	IntHashMap() {
+		keys = new int[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY_KEY);
+		values = new Object[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * @param key A key
+	 * @return The value mapped to the key, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(int key) {
+		int mask = keys.length - 1;
+		int slot = indexFor(key, mask);
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				return (V) values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @param key A key
+	 * @return True iff the key is mapped to a value
+	 */
+	boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps the key to the given value, replacing any previous value.
+	 * @param key A key
+	 * @param value The value
+	 */
+	void put(int key, V value) {
+		if ((size + 1) * MAX_LOAD_DIVISOR > keys.length) {
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = indexFor(key, mask);
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+	}
+
+	/**
+	 * @return Number of keys in the map
+	 */
+	int size() {
+		return size;
+	}
+
+	private static int indexFor(int key, int mask) {
+		int hash = key * HASH_MULTIPLIER;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[oldKeys.length * GROWTH_FACTOR];
+		Arrays.fill(keys, EMPTY_KEY);
+		values = new Object[keys.length];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int slot = indexFor(oldKeys[i], mask);
+				while (keys[slot] != EMPTY_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package oop.ex6.tables;
+
+/**
+ * A hash set of long values, kept in a primitive array and probed linearly, so that adding or
+ * finding a value never boxes it.
+ * Zero is not supported, as it marks the empty slots.
+ * @author Alon and Michal
+ *
+ */
+class LongHashSet {
+
+	private static final long EMPTY_VALUE = 0;
+	private static final int INITIAL_CAPACITY = 8;
+	private static final int MAX_LOAD_DIVISOR = 2;
+	private static final int GROWTH_FACTOR = 2;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private long[] values;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty set.
+	 */
+	LongHashSet() {
+		values = new long[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * @param value A non zero value
+	 * @return True iff the value is in the set
+	 */
+	boolean contains(long value) {
+		int mask = values.length - 1;
+		int slot = indexFor(value, mask);
+		while (values[slot] != EMPTY_VALUE) {
+			if (values[slot] == value) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the value to the set, if it isn't there already.
+	 * @param value A non zero value
+	 */
+	void add(long value) {
+		if ((size + 1) * MAX_LOAD_DIVISOR > values.length) {
+			grow();
+		}
+		int mask = values.length - 1;
+		int slot = indexFor(value, mask);
+		while (values[slot] != EMPTY_VALUE) {
+			if (values[slot] == value) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		values[slot] = value;
+		size++;
+	}
+
+	/**
+	 * @return Number of values in the set
+	 */
+	int size() {
+		return size;
+	}
+
+	private static int indexFor(long value, int mask) {
+		long hash = value * HASH_MULTIPLIER;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	private void grow() {
+		long[] oldValues = values;
+		values = new long[oldValues.length * GROWTH_FACTOR];
+		int mask = values.length - 1;
+		for (long value : oldValues) {
+			if (value != EMPTY_VALUE) {
+				int slot = indexFor(value, mask);
+				while (values[slot] != EMPTY_VALUE) {
+					slot = (slot + 1) & mask;
+				}
+				values[slot] = value;
+			}
+		}
+	}
+}
@@ -1,36 +1,48 @@
 package oop.ex6.tables;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.tables.Variable.VarType;
 
 /**
- * This class holds a table that maps method names to Method objects.
+ * This class holds a table that maps method names (by their interned id) to Method objects.
  * each method object hold a list of VarType enums that represent
  * the parameters of that method.
+ * The parameter types of a method are also compiled into a single long, three bits for each
+ * parameter, and the types of the arguments of a call are packed the same way, so a call is
+ * checked without walking the lists. Each method remembers the argument types it was already
+ * successfully called with, so checking a call that repeats them takes a single hash probe.
  * @author Alon and Michal
  *
  */
 public class MethodTable {
 	
-	private Map<String, Method> table;
+	// Types are packed by ordinal plus one, so that zero stands for no more types.
+	private static final int BITS_PER_TYPE = 3;
+	private static final long TYPE_MASK = (1L << BITS_PER_TYPE) - 1;
+	private static final int MAX_PACKED_TYPES = Long.SIZE / BITS_PER_TYPE;
+	private static final long NOT_PACKED = -1;
+	private static final VarType[] VAR_TYPES = VarType.values();
+
+	private IntHashMap<Method> table;
 	
 	public MethodTable(){
-		table = new HashMap<String, Method>();
+		table = new IntHashMap<Method>();
 	}
 	
 	/**
 	 * Represents a single method. Holds a list of VarType enums,
-	 * one for each of the method's parameters.
+	 * one for each of the method's parameters, and their packed form.
 	 * @author Alon and Michal
 	 *
 	 */
 	private class Method {
 		
 		private final List<VarType> parameterTypeList;
+		private final long packedParameterTypes;
+		private LongHashSet verifiedArgumentTypes;
 		
 		/**
 		 * Constructor
@@ -38,6 +50,7 @@ public class MethodTable {
 		 */
 		private Method(List<VarType> parameterTypeList) {
 			this.parameterTypeList = parameterTypeList;
+			packedParameterTypes = pack(parameterTypeList);
 		}
 		
 		/**
@@ -47,56 +60,143 @@ public class MethodTable {
 			return parameterTypeList;
 		}
 		
+		/**
+		 * @param packedArgumentTypes Packed types of the arguments of a call
+		 * @return True iff the method was already successfully called with these types
+		 */
+		private boolean wasVerified(long packedArgumentTypes) {
+			return packedArgumentTypes == packedParameterTypes || (verifiedArgumentTypes != null
+					&& verifiedArgumentTypes.contains(packedArgumentTypes));
+		}
+		
+		/**
+		 * Remembers that the method may be called with the given types.
+		 * @param packedArgumentTypes Packed types of the arguments of a call
+		 */
+		private void setVerified(long packedArgumentTypes) {
+			if (verifiedArgumentTypes == null) {
+				verifiedArgumentTypes = new LongHashSet();
+			}
+			verifiedArgumentTypes.add(packedArgumentTypes);
+		}
 
 	}
 	
 	/**
 	 * Receives a method name and ordered list of arguments, adds to method
 	 * table. 
-	 * @param name Method name
+	 * @param nameId Interned id of the method name
 	 * @param typeList List of the types of parameters in the method
 	 * @throws InvalidTableAccessException 
 	 */
-	public void addMethod(String name, List<VarType> parameterTypeList) 
+	public void addMethod(int nameId, List<VarType> parameterTypeList) 
 			                                   throws InvalidTableAccessException{
-		if (table.containsKey(name)) {
-			throw new InvalidTableAccessException("Requested method already exists");
+		ErrorCode error = declareMethod(nameId, parameterTypeList);
+		if (error != null) {
+			throw new InvalidTableAccessException(error);
+		}
+	}
+	
+	/**
+	 * Like addMethod, but returns the error instead of throwing it.
+	 * @param nameId Interned id of the method name
+	 * @param typeList List of the types of parameters in the method
+	 * @return The error, or null if the method was added
+	 */
+	public ErrorCode declareMethod(int nameId, List<VarType> parameterTypeList){
+		if (table.containsKey(nameId)) {
+			return ErrorCode.METHOD_EXISTS;
 		}
 		Method method = new Method(parameterTypeList);
-		table.put(name, method);
+		table.put(nameId, method);
+		return null;
 	}
 	
 
+	/**
+	 * @param nameId Interned id of the method name
+	 * @return True iff a method with this name was added to the table
+	 */
+	public boolean isDeclared(int nameId){
+		return table.containsKey(nameId);
+	}
+
 	/**
 	 * Receives the name of a method and an ordered list of the types of the
 	 * parameters called with the method. Makes sure that a method that has this name
 	 * and parameter list exists in the method table. if not, throws an exception
-	 * @param name Method name
+	 * @param nameId Interned id of the method name
 	 * @param paramList List of parameter types
 	 * @throws InvalidTableAccessException 
 	 */
-	public void verifyMethod(String name, List<VarType> paramList) throws InvalidTableAccessException{
-		Method extractedMethod = table.get(name);
-		List<VarType> extractedMethodParams;
-		if(extractedMethod != null){
-			extractedMethodParams = extractedMethod.getParameterTypeList();
-			if(paramList.size() == extractedMethodParams.size()){
-				Iterator<VarType> paramListIterator = paramList.iterator();
-				Iterator<VarType> extractedParamListIterator = extractedMethodParams.iterator();
-				while(paramListIterator.hasNext()){
-					if(!VarType.doVarTypesMatch(extractedParamListIterator.next(),
-							                              paramListIterator.next())){
-						throw new InvalidTableAccessException("Trying to call method with invalid "
-							                                                      	+ "parameter type");
-					}
-				}		
-			}else{
-				throw new InvalidTableAccessException("Trying to call method with invalid "
-																				+ "number of parameters");
+	public void verifyMethod(int nameId, List<VarType> paramList) throws InvalidTableAccessException{
+		ErrorCode error = checkCall(nameId, paramList);
+		if(error != null){
+			throw new InvalidTableAccessException(error);
+		}
+	}
+	
+	/**
+	 * Like verifyMethod, but returns the error instead of throwing it.
+	 * @param nameId Interned id of the method name
+	 * @param paramList List of parameter types
+	 * @return The error, or null if the method may be called with these types
+	 */
+	public ErrorCode checkCall(int nameId, List<VarType> paramList){
+		Method extractedMethod = table.get(nameId);
+		if(extractedMethod == null){
+			return ErrorCode.METHOD_NOT_DECLARED;
+		}
+		List<VarType> extractedMethodParams = extractedMethod.getParameterTypeList();
+		if(paramList.size() != extractedMethodParams.size()){
+			return ErrorCode.WRONG_PARAMETER_COUNT;
+		}
+		long packedArguments = pack(paramList);
+		if(packedArguments == NOT_PACKED){
+			// Too many arguments to pack, the types are compared one by one.
+			Iterator<VarType> paramListIterator = paramList.iterator();
+			Iterator<VarType> extractedParamListIterator = extractedMethodParams.iterator();
+			while(paramListIterator.hasNext()){
+				if(!VarType.doVarTypesMatch(extractedParamListIterator.next(),
+						                              paramListIterator.next())){
+					return ErrorCode.WRONG_PARAMETER_TYPE;
+				}
+			}
+			return null;
+		}
+		if(extractedMethod.wasVerified(packedArguments)){
+			return null;
+		}
+		long packedParameters = extractedMethod.packedParameterTypes;
+		for(int i = 0; i < paramList.size(); i++){
+			int shift = i * BITS_PER_TYPE;
+			if(!VarType.doVarTypesMatch(unpack(packedParameters, shift),
+					                                          unpack(packedArguments, shift))){
+				return ErrorCode.WRONG_PARAMETER_TYPE;
 			}
-		}else{
-			throw new InvalidTableAccessException("Requested method has not been declared");
 		}
+		extractedMethod.setVerified(packedArguments);
+		return null;
+	}
+	
+	/*
+	 * Packs the given types into a long, or returns NOT_PACKED if there are too many of them.
+	 */
+	private static long pack(List<VarType> types){
+		if(types.size() > MAX_PACKED_TYPES){
+			return NOT_PACKED;
+		}
+		long packedTypes = 0;
+		int shift = 0;
+		for(VarType type : types){
+			packedTypes |= (long) (type.ordinal() + 1) << shift;
+			shift += BITS_PER_TYPE;
+		}
+		return packedTypes;
+	}
+	
+	private static VarType unpack(long packedTypes, int shift){
+		return VAR_TYPES[(int) ((packedTypes >>> shift) & TYPE_MASK) - 1];
 	}
 	
 }
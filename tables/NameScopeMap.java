@@ -0,0 +1,146 @@
+package oop.ex6.tables;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from pairs of a name (by its interned id) and a scope (by its id in the ScopeTree) to
+ * objects. Like IntHashMap, the keys are kept in primitive arrays and probed linearly, so a lookup
+ * never boxes a key or builds a String.
+ * Negative name ids are not supported.
+ * @author Alon and Michal
+ *
+ * @param <V> Type of the values in the map
+ */
+class NameScopeMap<V> {
+
+	private static final int EMPTY_KEY = -1;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int MAX_LOAD_DIVISOR = 2;
+	private static final int GROWTH_FACTOR = 2;
+	private static final int NAME_HASH_MULTIPLIER = 0x9E3779B9;
+	private static final int SCOPE_HASH_MULTIPLIER = 0x85EBCA6B;
+
+	private int[] names;
+	private int[] scopes;
+	private Object[] values;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty map.
+	 */
+	NameScopeMap() {
+		names = new int[INITIAL_CAPACITY];
+		Arrays.fill(names, EMPTY_KEY);
+		scopes = new int[INITIAL_CAPACITY];
+		values = new Object[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * @param nameId Interned id of a name
+	 * @param scope Id of a scope
+	 * @return The value mapped to the name in the scope, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(int nameId, int scope) {
+		int slot = findSlot(nameId, scope);
+		return names[slot] == EMPTY_KEY ? null : (V) values[slot];
+	}
+
+	/**
+	 * Maps the name in the scope to the given value, replacing any previous value.
+	 * @param nameId Interned id of a name
+	 * @param scope Id of a scope
+	 * @param value The value
+	 */
+	void put(int nameId, int scope, V value) {
+		if ((size + 1) * MAX_LOAD_DIVISOR > names.length) {
+			grow();
+		}
+		int slot = findSlot(nameId, scope);
+		if (names[slot] == EMPTY_KEY) {
+			names[slot] = nameId;
+			scopes[slot] = scope;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Removes the value mapped to the name in the scope, if there is one.
+	 * @param nameId Interned id of a name
+	 * @param scope Id of a scope
+	 */
+	void remove(int nameId, int scope) {
+		int mask = names.length - 1;
+		int slot = findSlot(nameId, scope);
+		if (names[slot] == EMPTY_KEY) {
+			return;
+		}
+		// Moves back the keys that follow the removed one in its probe sequence, so that no
+		// key is separated from its home slot by an empty slot.
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (names[next] == EMPTY_KEY) {
+				break;
+			}
+			int home = indexFor(names[next], scopes[next], mask);
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				names[slot] = names[next];
+				scopes[slot] = scopes[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+		}
+		names[slot] = EMPTY_KEY;
+		values[slot] = null;
+		size--;
+	}
+
+	/**
+	 * @return Number of keys in the map
+	 */
+	int size() {
+		return size;
+	}
+
+	/*
+	 * Returns the slot holding the given key, or the empty slot it would be put in.
+	 */
+	private int findSlot(int nameId, int scope) {
+		int mask = names.length - 1;
+		int slot = indexFor(nameId, scope, mask);
+		while (names[slot] != EMPTY_KEY && (names[slot] != nameId || scopes[slot] != scope)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int indexFor(int nameId, int scope, int mask) {
+		int hash = nameId * NAME_HASH_MULTIPLIER ^ scope * SCOPE_HASH_MULTIPLIER;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void grow() {
+		int[] oldNames = names;
+		int[] oldScopes = scopes;
+		Object[] oldValues = values;
+		names = new int[oldNames.length * GROWTH_FACTOR];
+		Arrays.fill(names, EMPTY_KEY);
+		scopes = new int[names.length];
+		values = new Object[names.length];
+		int mask = names.length - 1;
+		for (int i = 0; i < oldNames.length; i++) {
+			if (oldNames[i] != EMPTY_KEY) {
+				int slot = indexFor(oldNames[i], oldScopes[i], mask);
+				while (names[slot] != EMPTY_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				names[slot] = oldNames[i];
+				scopes[slot] = oldScopes[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
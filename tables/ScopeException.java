@@ -1,5 +1,7 @@
 package oop.ex6.tables;
 
+import oop.ex6.line.ErrorCode;
+
 /**
  * An exception thrown when there are unbalanced brackets.
  * @author alonav11
@@ -8,8 +10,27 @@ package oop.ex6.tables;
 public class ScopeException extends Exception{
 	private static final long serialVersionUID = 1L;	
 	
+	private final ErrorCode errorCode;
+	
 	public ScopeException(String message){
 		super(message);
+		errorCode = null;
+	}
+	
+	/**
+	 * Constructor
+	 * @param errorCode The error, whose message is the message of the exception
+	 */
+	public ScopeException(ErrorCode errorCode){
+		super(errorCode.getMessage());
+		this.errorCode = errorCode;
+	}
+	
+	/**
+	 * @return The error, or null if the exception was created with a message only
+	 */
+	public ErrorCode getErrorCode(){
+		return errorCode;
 	}
 
 }
@@ -0,0 +1,93 @@
+package oop.ex6.tables;
+
+import java.util.Arrays;
+
+/**
+ * The tree of the scopes of a single file: the global scope, and under it the scope of every
+ * method, if block and while block, in the order they were opened. Each scope is identified by an
+ * int id, and holds the id of its parent scope.
+ * Every scope is also numbered on entry and on exit by a single counter, so that a scope is within
+ * another iff its entry and exit numbers are within the other's. A scope that wasn't closed yet
+ * has the largest exit number possible, as every scope opened after it is within it.
+ * @author Alon and Michal
+ *
+ */
+public class ScopeTree {
+
+	public static final int GLOBAL_SCOPE = 0;
+	public static final int NO_SCOPE = -1;
+
+	private static final int OPEN = Integer.MAX_VALUE;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int GROWTH_FACTOR = 2;
+
+	private int[] parents;
+	private int[] entries;
+	private int[] exits;
+	private int size;
+	private int clock;
+
+	/**
+	 * Constructor. Creates a tree holding only the (open) global scope.
+	 */
+	public ScopeTree() {
+		parents = new int[INITIAL_CAPACITY];
+		entries = new int[INITIAL_CAPACITY];
+		exits = new int[INITIAL_CAPACITY];
+		size = 0;
+		clock = 0;
+		open(NO_SCOPE);
+	}
+
+	/**
+	 * Opens a new scope within the given one.
+	 * @param parent Id of the (open) scope the new scope is in
+	 * @return Id of the new scope
+	 */
+	public int open(int parent) {
+		if (size == parents.length) {
+			int newCapacity = parents.length * GROWTH_FACTOR;
+			parents = Arrays.copyOf(parents, newCapacity);
+			entries = Arrays.copyOf(entries, newCapacity);
+			exits = Arrays.copyOf(exits, newCapacity);
+		}
+		parents[size] = parent;
+		entries[size] = clock++;
+		exits[size] = OPEN;
+		return size++;
+	}
+
+	/**
+	 * Closes the given scope. No scope may be opened within it afterwards.
+	 * @param scope Id of the scope
+	 * @return Id of the scope it is in
+	 */
+	public int close(int scope) {
+		exits[scope] = clock++;
+		return parents[scope];
+	}
+
+	/**
+	 * @param scope Id of a scope
+	 * @return Id of the scope it is in, or NO_SCOPE for the global scope
+	 */
+	public int getParent(int scope) {
+		return parents[scope];
+	}
+
+	/**
+	 * @param outer Id of a scope
+	 * @param inner Id of a scope
+	 * @return True iff inner is outer itself, or is (directly or indirectly) within it
+	 */
+	public boolean isWithin(int outer, int inner) {
+		return entries[outer] <= entries[inner] && exits[inner] <= exits[outer];
+	}
+
+	/**
+	 * @return Number of scopes in the tree
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -3,13 +3,12 @@ package oop.ex6.tables;
 
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
 import oop.ex6.tables.Variable.VarType;
 import oop.ex6.line.TokenType;
-import oop.ex6.line.Tokenizer.Token;
 
 
 /**
@@ -17,33 +16,51 @@ import oop.ex6.line.Tokenizer.Token;
  * if it contains a variable or method
  * declaration it adds the relevant variable to the relevant table. 
  * The object saves his current scope within the program and updates the given
- * line with that scope.
+ * line with that scope. Scopes are the ids of the file's ScopeTree.
+ * It also records the sites in which every variable is assigned a value (its declaration, an
+ * assignment line, or the declaration of the method for a parameter). An assignment to a name that
+ * can't be found yet is kept until a global variable of that name is declared.
+ * The declarations of the global scope may also be added ahead of the lines of the file (see
+ * addDeclaration), in which case they aren't added again when their lines are.
  * @author Alon and Michal
  *
  */
 public class TableAndScopeMaker{
-	public static final String GLOBAL_SCOPE = "global";
-	public static final String SCOPE_SEPERATOR = ".";
-	public static final String IF_SCOPE = "if";
-	public static final String WHILE_SCOPE = "while";
+	public static final int GLOBAL_SCOPE = ScopeTree.GLOBAL_SCOPE;
 	
 
-	private String currentScope;
-	private int ifCounter;
-	private int whileCounter;
+	private int currentScope;
+	private ScopeTree scopeTree;
 	private VariableTable variableTable;
 	private MethodTable methodTable;
+	private List<Integer> localVariableNameIds;
+	private List<Variable> localVariables;
+	private IntHashMap<List<Line>> unresolvedAssignments;
+	private boolean areDeclarationsKnown;
 	
 	
 	/**
 	 * Constructor. Starts the beginning scope off as "Global".
 	 */
 	public TableAndScopeMaker(){
+		this(false);
+	}
+	
+	/**
+	 * Constructor. Starts the beginning scope off as "Global".
+	 * @param tracksLocalVariables True if the variables declared outside of the global scope
+	 * should be remembered, so that they can later be removed with releaseLocalVariables.
+	 */
+	public TableAndScopeMaker(boolean tracksLocalVariables){
 		currentScope = GLOBAL_SCOPE;
-		variableTable = new VariableTable();
+		scopeTree = new ScopeTree();
+		variableTable = new VariableTable(scopeTree);
 		methodTable = new MethodTable();
-		ifCounter = 0;
-		whileCounter = 0;
+		unresolvedAssignments = new IntHashMap<List<Line>>();
+		if(tracksLocalVariables){
+			localVariableNameIds = new ArrayList<Integer>();
+			localVariables = new ArrayList<Variable>();
+		}
 	}
 	
 	/**
@@ -55,52 +72,122 @@ public class TableAndScopeMaker{
 	 * @throws InvalidTableAccessException 
 	 */
 	public void addtoTable(Line line) throws InvalidTableAccessException, ScopeException{
-		List<Token> tokenList = line.getTokenList();
+		ErrorCode error = addLine(line);
+		if(error == null){
+			return;
+		}
+		if(error.getCategory() == ErrorCode.Category.SCOPE){
+			throw new ScopeException(error);
+		}
+		throw new InvalidTableAccessException(error);
+	}
+	
+	/**
+	 * Like addtoTable, but returns the error instead of throwing it.
+	 * @param line
+	 * @return The error, or null if the line was added
+	 */
+	public ErrorCode addLine(Line line){
 		switch(line.getLineType()){
 		case VAR_DECLARATION: 
-			addVariable(tokenList, false);
 			line.setScope(currentScope);
-			break;
+			if(isKnownDeclaration()){
+				return null;
+			}
+			return addVariable(line, false);
 			
 		case FINAL_VAR_DECLARATION:
-			addVariable(tokenList, true);
 			line.setScope(currentScope);
-			break;
+			if(isKnownDeclaration()){
+				return null;
+			}
+			return addVariable(line, true);
 			
 		case METHOD_DECLARATION:
 			line.setScope(currentScope);
-			addMethod(tokenList, line.getLineNumber(), line.getScope());
-			// Scope is updated within addMethod, after the name of
-			// the method is located.
-			break;
+			// Scope is updated within addMethod, before the parameters of
+			// the method are added.
+			return addMethod(line, line.getLineNumber());
 			
 		case IF_STATEMENT:
-			line.setScope(currentScope);
-			ifCounter ++;
-			currentScope += SCOPE_SEPERATOR + IF_SCOPE + ifCounter;
-			break;
-			
 		case WHILE_STATEMENT:
 			line.setScope(currentScope);
-			whileCounter ++;
-			currentScope += SCOPE_SEPERATOR + WHILE_SCOPE + whileCounter;
-			break;
+			currentScope = scopeTree.open(currentScope);
+			return null;
 	
+		case VAR_ASSIGNMENT:
+			line.setScope(currentScope);
+			if(!isKnownDeclaration()){
+				addAssignmentSites(line);
+			}
+			return null;
+			
 		case CLOSING_BRACKET:
 			if(currentScope == GLOBAL_SCOPE){
-				throw new ScopeException("Too many closing brackets");
+				return ErrorCode.TOO_MANY_CLOSING_BRACKETS;
 			}
-			currentScope =  currentScope.substring(0, currentScope.lastIndexOf(SCOPE_SEPERATOR));
+			currentScope = scopeTree.close(currentScope);
 			line.setScope(currentScope);
-			break;
+			return null;
 			
 		default:
 			line.setScope(currentScope);
-			break;
+			return null;
 				
 		}
 	}
 	
+	/**
+	 * Adds the declarations of a line of the global scope ahead of the lines of the file: the
+	 * global variables it declares and the sites of its assignments, or the signature of the method
+	 * it declares, without the parameters. The lines of the global scope are to be given in order,
+	 * before any line is added with addLine, which then only adds the parameters and the local
+	 * variables and keeps track of the scopes.
+	 * @param line A line of the global scope that is syntactically valid
+	 * @return The error, or null if the declarations were added
+	 */
+	public ErrorCode addDeclaration(Line line){
+		areDeclarationsKnown = true;
+		line.setScope(GLOBAL_SCOPE);
+		switch(line.getLineType()){
+		case VAR_DECLARATION:
+			return addVariable(line, false);
+			
+		case FINAL_VAR_DECLARATION:
+			return addVariable(line, true);
+			
+		case VAR_ASSIGNMENT:
+			addAssignmentSites(line);
+			return null;
+			
+		case METHOD_DECLARATION:
+			return addMethodSignature(line);
+			
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Keeps the scopes in line with the brackets of the file after a line that couldn't be added
+	 * to the tables, so that the lines after it can still be validated. The line opens or closes
+	 * a scope if it ends with an opening bracket or starts with a closing one, unless it already
+	 * did so before it failed.
+	 * @param scopeBefore The scope that the line was in
+	 * @param opensBlock True iff the line ends with an opening bracket
+	 * @param closesBlock True iff the line starts with a closing bracket
+	 */
+	public void recoverScope(int scopeBefore, boolean opensBlock, boolean closesBlock){
+		if(currentScope != scopeBefore){
+			return;
+		}
+		if(opensBlock){
+			currentScope = scopeTree.open(currentScope);
+		}else if(closesBlock && currentScope != GLOBAL_SCOPE){
+			currentScope = scopeTree.close(currentScope);
+		}
+	}
+	
 	public VariableTable getVariableTable(){
 		return variableTable;
 	}
@@ -108,105 +195,246 @@ public class TableAndScopeMaker{
 	public MethodTable getMethodTable(){
 		return methodTable;
 	}
+	
+	public ScopeTree getScopeTree(){
+		return scopeTree;
+	}
+	
+	/**
+	 * @return The scope that the next line will be in
+	 */
+	public int getCurrentScope(){
+		return currentScope;
+	}
+	
+	/**
+	 * Removes from the variable table all the variables that were declared outside of the
+	 * global scope since the last call, once the lines that may refer to them were validated.
+	 * Only possible if the object was created to track local variables.
+	 */
+	public void releaseLocalVariables(){
+		for(int i = 0; i < localVariables.size(); i++){
+			variableTable.removeVariable(localVariableNameIds.get(i), localVariables.get(i));
+		}
+		retainLocalVariables();
+	}
+	
+	/**
+	 * Keeps the variables that were declared outside of the global scope since the last call
+	 * in the variable table for good, as lines that refer to them still need to be validated.
+	 */
+	public void retainLocalVariables(){
+		localVariableNameIds.clear();
+		localVariables.clear();
+	}
+	
+	/*
+	 * Returns true iff the declarations of the current scope were already added by addDeclaration.
+	 */
+	private boolean isKnownDeclaration(){
+		return areDeclarationsKnown && currentScope == GLOBAL_SCOPE;
+	}
+	
+	/*
+	 * Adds a variable to the variable table, remembering it if it is a local variable that
+	 * should later be released. Returns the error, or null if the variable was added.
+	 */
+	private ErrorCode declareVariable(int nameId, Variable variable){
+		ErrorCode error = variableTable.declareVariable(nameId, variable);
+		if(error == null && localVariables != null && variable.getScope() != GLOBAL_SCOPE){
+			localVariableNameIds.add(nameId);
+			localVariables.add(variable);
+		}
+		return error;
+	}
+
+	/*
+	 * Adds the variable whose name is the given token of a declaration line, with the site of its
+	 * assignment if it is assigned a value in the declaration.
+	 */
+	private ErrorCode addDeclaredVariable(Line line, int tokenIndex, VarType varType, 
+			                                                                boolean isFinal){
+		int nameId = line.getTokenNameId(tokenIndex);
+		Variable variable = new Variable(varType, currentScope, line.getLineNumber(), isFinal);
+		ErrorCode error = declareVariable(nameId, variable);
+		if(error != null){
+			return error;
+		}
+		if(tokenIndex + 1 < line.getTokenCount()
+				&& line.getTokenType(tokenIndex + 1) == TokenType.EQUALS){
+			variableTable.addInitializationSite(variable, line.getLineNumber(), currentScope);
+		}
+		if(currentScope == GLOBAL_SCOPE){
+			resolveAssignments(nameId, variable);
+		}
+		return null;
+	}
+
+	/*
+	 * Adds the sites of the variables assigned by an assignment line, binding the names that are
+	 * found to their variables. A name that can't be found may belong to a global variable
+	 * declared further down the file, and is otherwise left for the validators to report.
+	 */
+	private void addAssignmentSites(Line line){
+		for(int i = 0; i < line.getTokenCount() - 1; i++){
+			if(line.getTokenType(i) == TokenType.VARNAME
+					&& line.getTokenType(i + 1) == TokenType.EQUALS){
+				int nameId = line.getTokenNameId(i);
+				Variable variable = variableTable.findVariable(nameId, line);
+				if(variable != null){
+					line.bindToken(i, variable.getSlot());
+					variableTable.addInitializationSite(variable, line.getLineNumber(),
+							                                                   line.getScope());
+				}else{
+					List<Line> lines = unresolvedAssignments.get(nameId);
+					if(lines == null){
+						lines = new ArrayList<Line>();
+						unresolvedAssignments.put(nameId, lines);
+					}
+					lines.add(line);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Adds the sites of the earlier assignments to the name of a global variable that was just
+	 * declared, which couldn't be found when they were added.
+	 */
+	private void resolveAssignments(int nameId, Variable variable){
+		List<Line> lines = unresolvedAssignments.get(nameId);
+		if(lines != null){
+			for(Line line : lines){
+				variableTable.addInitializationSite(variable, line.getLineNumber(),
+						                                                   line.getScope());
+			}
+			lines.clear();
+		}
+	}
 
 	/**
-	 * Goes over a given token list of a variable declaration line and
+	 * Goes over the tokens of a variable declaration line and
 	 * and adds variables to the VariableTable.
-	 * @param tokenList TokenList of a method declaration line.
+	 * @param line A variable declaration line.
 	 * @param isFinal Boolean stating if the declaration starts with a final modifier
-	 * @throws InvalidTableAccessException 
+	 * @return The error, or null if all the variables were added
 	 */	
-	private void addVariable(List<Token> tokenList, boolean isFinal)
-			                                       throws InvalidTableAccessException{
+	private ErrorCode addVariable(Line line, boolean isFinal){
+		ErrorCode error = null;
 		VarType varType;
-		Iterator<Token> tokenIterator = tokenList.iterator();
-		Token currentToken;
+		int tokenIndex = 0;
 		
 		if(isFinal){ // If the final modifier appears, the method skips it.
-			tokenIterator.next();
+			tokenIndex++;
 		}
 		
 		// Saving the first token as the VarType.
 		//The VarType and Tokens at the start of VAR_DECLARATION are of the same names, 
 		// so conversion is possible.	
-		varType = VarType.valueOf(tokenIterator.next().getTokenType().name());
+		varType = VarType.valueOf(line.getTokenType(tokenIndex++).name());
 		
 		
-		currentToken = tokenIterator.next();
 		// The token after the VarType should be the name of the variable to be added. Adding it
 		// to the list if it is in fact a variable name.
-		if(currentToken.getTokenType() == TokenType.VARNAME){
-			variableTable.addVariable(currentToken.getName(), new Variable(varType, currentScope,
-																							isFinal));					
+		if(line.getTokenType(tokenIndex) == TokenType.VARNAME){
+			error = addDeclaredVariable(line, tokenIndex, varType, isFinal);
 		}
+		tokenIndex++;
 		
 		//Adding every other variable name that is preceded by a comma.
-		while(tokenIterator.hasNext()){
-			currentToken = tokenIterator.next();
-			if (currentToken.getTokenType() == TokenType.COMMA){
-				currentToken = tokenIterator.next();
-				if(currentToken.getTokenType() == TokenType.VARNAME)
-					variableTable.addVariable(currentToken.getName(), new Variable(varType, 
-																			currentScope, isFinal));
+		while(error == null && tokenIndex < line.getTokenCount()){
+			if (line.getTokenType(tokenIndex++) == TokenType.COMMA){
+				if(line.getTokenType(tokenIndex) == TokenType.VARNAME)
+					error = addDeclaredVariable(line, tokenIndex, varType, isFinal);
+				tokenIndex++;
 			}
 		}
-		
+		return error;
 	}
 	
 	/**
-	 * Goes over a given token list of a method declaration line and
+	 * Goes over the tokens of a method declaration line and
 	 * and adds the method to the methodTable and its parameters to the VariableTables
-	 * @param tokenList TokenList of a method declaration line.
-	 * @return method name
-	 * @throws InvalidTableAccessException 
+	 * @param line A method declaration line.
+	 * @param lineNumber Number of the line
+	 * @return The error, or null if the method and its parameters were added
 	 */
 	
-	private String addMethod(List<Token> tokenList, int lineNumber, String lineScope)
-			 throws InvalidTableAccessException{
+	private ErrorCode addMethod(Line line, int lineNumber){
+		ErrorCode error;
 		VarType varType;
-		Iterator<Token> tokenIterator = tokenList.iterator();
 		List<VarType> methodParameters = new ArrayList<VarType>();
-		Token currentToken = tokenIterator.next();
-		String methodName;
+		int tokenIndex;
+		int methodNameId;
 		boolean isFinal = false;
 		Variable newVariable;
 
-		// Advance iterator until the name of the method
-		while(currentToken.getTokenType() != TokenType.METHODNAME && tokenIterator.hasNext()){
-			currentToken = tokenIterator.next();
-		}
-
-		methodName = currentToken.getName();
-		currentScope += SCOPE_SEPERATOR + methodName;
-		currentToken = tokenIterator.next();
+		tokenIndex = findMethodName(line);
+		methodNameId = line.getTokenNameId(tokenIndex++);
+		currentScope = scopeTree.open(currentScope);
 
-		while(currentToken.getTokenType() != TokenType.CLOSINGPARENTHESIS){
-			if(currentToken.getTokenType() == TokenType.FINAL){
-				currentToken = tokenIterator.next();
+		while(line.getTokenType(tokenIndex) != TokenType.CLOSINGPARENTHESIS){
+			if(line.getTokenType(tokenIndex) == TokenType.FINAL){
+				tokenIndex++;
 				isFinal = true;
 			}
 			
-			varType = VarType.valueOf(currentToken.getTokenType().name());
+			varType = VarType.valueOf(line.getTokenType(tokenIndex++).name());
 			methodParameters.add(varType);
-			currentToken = tokenIterator.next();
-			newVariable = new Variable(varType,currentScope, isFinal);
-			newVariable.initialize(lineNumber, currentScope);
-			variableTable.addVariable(currentToken.getName(), newVariable);									
+			newVariable = new Variable(varType,currentScope, lineNumber, isFinal);
+			error = declareVariable(line.getTokenNameId(tokenIndex++), newVariable);
+			if(error != null){
+				return error;
+			}
+			variableTable.addInitializationSite(newVariable, lineNumber, currentScope);
+			variableTable.initializeInMethods(newVariable);
 		
 			// Passing over the comma onto the next 
-			currentToken = tokenIterator.next();
-			if(currentToken.getTokenType() == TokenType.COMMA){
-				currentToken = tokenIterator.next();
+			if(line.getTokenType(tokenIndex) == TokenType.COMMA){
+				tokenIndex++;
 			}
 	
 		}
 		
-		methodTable.addMethod(methodName, methodParameters);
-		return methodName;
+		if(areDeclarationsKnown){
+			// The method was already added along with the declarations of the global scope.
+			return null;
+		}
+		return methodTable.declareMethod(methodNameId, methodParameters);
 	}
-}
-
 	
-
-
-
+	/*
+	 * Adds the method declared by the given line to the method table, without adding its
+	 * parameters to the variable table or opening its scope.
+	 */
+	private ErrorCode addMethodSignature(Line line){
+		List<VarType> methodParameters = new ArrayList<VarType>();
+		int tokenIndex = findMethodName(line);
+		int methodNameId = line.getTokenNameId(tokenIndex++);
+		while(line.getTokenType(tokenIndex) != TokenType.CLOSINGPARENTHESIS){
+			if(line.getTokenType(tokenIndex) == TokenType.FINAL){
+				tokenIndex++;
+			}
+			methodParameters.add(VarType.valueOf(line.getTokenType(tokenIndex).name()));
+			// Passing over the type and the name of the parameter
+			tokenIndex += 2;
+			if(line.getTokenType(tokenIndex) == TokenType.COMMA){
+				tokenIndex++;
+			}
+		}
+		return methodTable.declareMethod(methodNameId, methodParameters);
+	}
+	
+	/*
+	 * Returns the index of the name token of a method declaration line.
+	 */
+	private static int findMethodName(Line line){
+		int tokenIndex = 0;
+		// Advance until the name of the method
+		while(line.getTokenType(tokenIndex) != TokenType.METHODNAME && 
+				                                     tokenIndex < line.getTokenCount() - 1){
+			tokenIndex++;
+		}
+		return tokenIndex;
+	}
+}
@@ -3,25 +3,28 @@ package oop.ex6.tables;
 /**
  * This class represents a single variable within the variable table. The
  * variable's name will be the map's key (there can be several variables for
- * each key). The variable holds his own scope, type, and isFinal and
- * wasInitialized booleans.
+ * each key). The variable holds his own scope, type, and isFinal boolean,
+ * its slot in the bitsets that track which variables were assigned, and the
+ * sites of its assignments (see VariableTable.isInitialized).
  * 
  * @author Alon and Michal
  *
  */
 public class Variable {
 
-	public static final int NOT_INITIALIZED = -1;
-
 	private final VarType type;
-	private final String scope;
-	private String scopeOfInitialization;
+	private final int scope;
+	private final int lineDeclared;
 	private final boolean isFinal;
-	private int lineInitialized;
+	private final InitializationSites initializationSites;
+	private int slot;
 
 	public static enum VarType {
 		INT, DOUBLE, FLOAT, STRING, CHAR, BOOLEAN;
 
+		// For each type, the bits (by ordinal) of the types that may be assigned to it.
+		private static final int[] ASSIGNABLE_TYPES = computeAssignableTypes();
+
 		/**
 		 * Receives a VarType (left) that is going to be assigned another
 		 * VarType (right). Returns true iff the assignment is valid (For
@@ -34,7 +37,26 @@ public class Variable {
 		 * @return True iff the assignment is valid
 		 */
 		public static boolean doVarTypesMatch(VarType leftVar, VarType rightVar) {
+			return (ASSIGNABLE_TYPES[leftVar.ordinal()] & (1 << rightVar.ordinal())) != 0;
+		}
 
+		private static int[] computeAssignableTypes() {
+			VarType[] types = values();
+			int[] assignableTypes = new int[types.length];
+			for (VarType leftVar : types) {
+				for (VarType rightVar : types) {
+					if (isAssignable(leftVar, rightVar)) {
+						assignableTypes[leftVar.ordinal()] |= 1 << rightVar.ordinal();
+					}
+				}
+			}
+			return assignableTypes;
+		}
+
+		/*
+		 * The rule that decides whether a type may be assigned to another.
+		 */
+		private static boolean isAssignable(VarType leftVar, VarType rightVar) {
 			return (leftVar.equals(rightVar)
 					|| (leftVar.equals(DOUBLE) && rightVar.equals(INT)) || (leftVar
 					.equals(BOOLEAN))
@@ -49,15 +71,18 @@ public class Variable {
 	 * @param type
 	 *            VarType of variable
 	 * @param scope
-	 *            The scope of the variable's declaration
+	 *            Id of the scope of the variable's declaration
+	 * @param lineDeclared
+	 *            Number of the line of the variable's declaration
 	 * @param isFinal
 	 *            Is the variable defined as final.
 	 */
-	Variable(VarType type, String scope, boolean isFinal) {
+	Variable(VarType type, int scope, int lineDeclared, boolean isFinal) {
 		this.type = type;
 		this.scope = scope;
+		this.lineDeclared = lineDeclared;
 		this.isFinal = isFinal;
-		lineInitialized = NOT_INITIALIZED;
+		initializationSites = new InitializationSites();
 	}
 
 	/**
@@ -68,12 +93,19 @@ public class Variable {
 	}
 
 	/**
-	 * @return Scope of variable declaration
+	 * @return Id of the scope of variable declaration
 	 */
-	public String getScope() {
+	public int getScope() {
 		return scope;
 	}
 
+	/**
+	 * @return Number of the line of variable declaration
+	 */
+	public int lineDeclared() {
+		return lineDeclared;
+	}
+
 	/**
 	 * @return True iff the variable has a final modifier
 	 */
@@ -82,24 +114,24 @@ public class Variable {
 	}
 
 	/**
-	 * @return Number of line when variable was initialized. -1 If it wasn't
-	 *         initialized yet.
+	 * @return The variable's slot in the bitsets of assigned variables, given by the table
 	 */
-	public int lineInitialized() {
-		return lineInitialized;
+	public int getSlot() {
+		return slot;
 	}
-	
-	public String scopeInitialized(){
-		return scopeOfInitialization;
+
+	/**
+	 * @param slot The variable's slot in the bitsets of assigned variables
+	 */
+	void setSlot(int slot) {
+		this.slot = slot;
 	}
-	
 
 	/**
-	 * Marks variable as initialized.
+	 * @return The lines and scopes in which the variable is assigned a value
 	 */
-	public void initialize(int lineInitialized, String scopeOfInitialization){
-		this.lineInitialized = lineInitialized;
-		this.scopeOfInitialization = scopeOfInitialization;
+	InitializationSites getInitializationSites() {
+		return initializationSites;
 	}
 
 }
\ No newline at end of file
@@ -1,77 +1,248 @@
 package oop.ex6.tables;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.TokenBuffer;
+import oop.ex6.line.TokenType;
 
 
 /**
- * This class holds a table that maps Variable names to an array of variable
- * objects, each of them holding said name. The variables in each list have a different scope
- * as well as a "isFinal" and "wasInitialized" members. Each variable is also defined by its variableType.
+ * This class holds a table of the variables of the file, by the interned id of their name and the
+ * scope they were declared in. Each scope acts as a frame of the table: a name is declared at
+ * most once in each scope, and is looked up first in the frame of the current scope, then in the
+ * frame of the scope that holds it, and so on up to the global scope, so that the innermost
+ * declaration of a name hides the outer ones. Every lookup probes a single frame per enclosing
+ * scope, no matter how many other scopes declare the same name.
+ * Each variable object holds its own type as well as a "isFinal" member, and is given a slot when it
+ * is added, by which the table tracks whether it was assigned a value (see DefiniteAssignment).
+ * While the lines are validated in order, whether a variable was assigned is a bit test; once lines
+ * are validated again out of order (the units deferred to the end of the file by the streaming
+ * modes), it is looked up in the variable's InitializationSites instead.
+ * The names of a line are resolved once, by resolveNames, which binds each variable name token to
+ * the slot of its variable, and the checks of the line then read the variable of the slot.
+ * The slot of a removed variable is given to the next variable declared.
  * The class manages the table, inserting new variables, getting information from existing variables
- * and checking if a variable exists in a valid scope.
+ * and checking if a variable exists in a valid scope, and if it was assigned at a given line.
  * @authors Alon and Michal
  *
  */
 public class VariableTable {
 
-	private Map<String, List<Variable>> table;
+	private static final int INITIAL_SLOTS = 16;
+	private static final int GROWTH_FACTOR = 2;
+
+	private NameScopeMap<Variable> table;
+	private final ScopeTree scopeTree;
+	private final DefiniteAssignment assignments;
+	private Variable[] variablesBySlot;
+	private int slotCount;
+	private int[] freeSlots;
+	private int freeSlotCount;
+	private int lastLineNumber;
+	private boolean isWalkInOrder;
 
 
-	public VariableTable(){
-		table = new HashMap<String, List<Variable>>();
+	/**
+	 * Constructor
+	 * @param scopeTree The tree of the scopes the variables are declared in
+	 */
+	public VariableTable(ScopeTree scopeTree){
+		table = new NameScopeMap<Variable>();
+		this.scopeTree = scopeTree;
+		assignments = new DefiniteAssignment(scopeTree);
+		variablesBySlot = new Variable[INITIAL_SLOTS];
+		slotCount = 0;
+		freeSlots = new int[INITIAL_SLOTS];
+		freeSlotCount = 0;
+		lastLineNumber = 0;
+		isWalkInOrder = true;
 	}
-	
+
 
 	/**
 	 * Attempts to add new variable to table. Checks whether a variable of the
 	 * same name already exists in the same scope, in which case it does not add
-	 * the variable to the table. 
-	 * @param name Name of variable to add
+	 * the variable to the table.
+	 * @param variableNameId Interned id of the name of the variable to add
 	 * @param variableObject variable object to add, containing scope, type, and isFinal boolean.
-	 * @throws InvalidTableAccessException 
+	 * @throws InvalidTableAccessException
 	 */
-	public void addVariable(String variableName, Variable variableObject)
+	public void addVariable(int variableNameId, Variable variableObject)
 			                                               throws InvalidTableAccessException{
-		List<Variable> matchingVars = table.get(variableName);
-		if (matchingVars != null) {
-			for(Variable matchingVar:matchingVars){
-				if (matchingVar.getScope().equals(variableObject.getScope())) {
-					throw new InvalidTableAccessException("Requested variable already exists");
-				}
+		ErrorCode error = declareVariable(variableNameId, variableObject);
+		if (error != null) {
+			throw new InvalidTableAccessException(error);
+		}
+	}
+
+	/**
+	 * Like addVariable, but returns the error instead of throwing it.
+	 * @param variableNameId Interned id of the name of the variable to add
+	 * @param variableObject variable object to add, containing scope, type, and isFinal boolean.
+	 * @return The error, or null if the variable was added
+	 */
+	public ErrorCode declareVariable(int variableNameId, Variable variableObject){
+		if (table.get(variableNameId, variableObject.getScope()) != null) {
+			return ErrorCode.VARIABLE_EXISTS;
+		}
+		int slot;
+		if (freeSlotCount > 0) {
+			slot = freeSlots[--freeSlotCount];
+		} else {
+			slot = slotCount++;
+			if (slot == variablesBySlot.length) {
+				variablesBySlot = Arrays.copyOf(variablesBySlot, slot * GROWTH_FACTOR);
 			}
-			matchingVars.add(variableObject);
-		}else{
-			List<Variable> newVariableList = new ArrayList<Variable>();
-			newVariableList.add(variableObject);
-			table.put(variableName, newVariableList);
 		}
+		variableObject.setSlot(slot);
+		variablesBySlot[slot] = variableObject;
+		table.put(variableNameId, variableObject.getScope(), variableObject);
+		return null;
 	}
 
 	/**
-	 * Receives a variable name and a current scope. Returns a variable object with that name 
-	 * that exists within the given scope or above it. For example,
-	 * given the scope global.foo.if and the variable name VAR, the method can return
-	 * a variable VAR with a scope global.foo.
-	 * @param varName Variable name
-	 * @param scope The current scope that the caller is in
-	 * @return Variable object with the given name that is accessed from within the given scope.
-	 * @throws InvalidTableAccessException 
+	 * Removes the given variable from the table, once the lines that refer to it were validated.
+	 * @param variableNameId Interned id of the name of the variable
+	 * @param variableObject The variable to remove
 	 */
-	public Variable getVariableInLegalScope(String varName, String scope) 
+	public void removeVariable(int variableNameId, Variable variableObject){
+		if (table.get(variableNameId, variableObject.getScope()) == variableObject) {
+			table.remove(variableNameId, variableObject.getScope());
+			int slot = variableObject.getSlot();
+			variablesBySlot[slot] = null;
+			assignments.release(slot);
+			if (freeSlotCount == freeSlots.length) {
+				freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * GROWTH_FACTOR);
+			}
+			freeSlots[freeSlotCount++] = slot;
+		}
+	}
+
+	/**
+	 * Receives a variable name and a line. Returns the innermost variable with that name that
+	 * is visible from the line: a variable of the line's scope or of a scope that holds it, that
+	 * is global or was declared no later than the line. For example, from a line within an if
+	 * block of the method foo, the method can return a variable VAR declared earlier in foo,
+	 * unless the if block declared its own VAR before the line.
+	 * @param varNameId Interned id of the variable name
+	 * @param line The line that refers to the variable
+	 * @return Variable object with the given name that is accessed from within the given line.
+	 * @throws InvalidTableAccessException
+	 */
+	public Variable getVariableInLegalScope(int varNameId, Line line)
 			                                                throws InvalidTableAccessException{
-		List<Variable> varList = table.get(varName);
-		if(varList != null){
-			for(Variable var:varList){
-				if(scope.startsWith(var.getScope())){
-					return var;
-				}
+		Variable var = findVariable(varNameId, line);
+		if (var == null) {
+			throw new InvalidTableAccessException(ErrorCode.VARIABLE_NOT_DECLARED);
+		}
+		return var;
+	}
+
+	/**
+	 * Like getVariableInLegalScope, but returns null instead of throwing an exception if there is
+	 * no such variable (ErrorCode.VARIABLE_NOT_DECLARED).
+	 * @param varNameId Interned id of the variable name
+	 * @param line The line that refers to the variable
+	 * @return Variable object with the given name that is accessed from within the given line,
+	 * or null if there is none.
+	 */
+	public Variable findVariable(int varNameId, Line line){
+		for (int scope = line.getScope(); scope != ScopeTree.NO_SCOPE;
+				                                         scope = scopeTree.getParent(scope)) {
+			Variable var = table.get(varNameId, scope);
+			if (var != null && (scope == ScopeTree.GLOBAL_SCOPE ||
+					                   var.lineDeclared() <= line.getLineNumber())) {
+				return var;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Binds every variable name of the line to the variable it refers to (see findVariable), or
+	 * marks it as unresolved. A name that was already bound keeps its binding, as a variable that
+	 * is visible from a line stays the innermost one with its name; an unresolved name is looked
+	 * up again, as its global variable may have been declared since.
+	 * @param line The line
+	 */
+	public void resolveNames(Line line){
+		for (int i = 0; i < line.getTokenCount(); i++) {
+			if (line.getTokenType(i) == TokenType.VARNAME && line.getTokenBinding(i) < 0) {
+				Variable var = findVariable(line.getTokenNameId(i), line);
+				line.bindToken(i, var == null ? TokenBuffer.UNRESOLVED : var.getSlot());
 			}
 		}
-		throw new InvalidTableAccessException("Requested Variable hasn't been declared");
-		
 	}
-	
+
+	/**
+	 * @param line A line whose names were resolved (see resolveNames)
+	 * @param tokenIndex Index of a variable name token of the line
+	 * @return The variable the token is bound to, or null if there is none.
+	 */
+	public Variable getBoundVariable(Line line, int tokenIndex){
+		int binding = line.getTokenBinding(tokenIndex);
+		return binding < 0 ? null : variablesBySlot[binding];
+	}
+
+	/**
+	 * Moves the tracking of assignments to the given line. The lines of the file (or of the parts
+	 * of it being validated) are to be given in order, each before its assignments are marked or
+	 * its variables are checked for values.
+	 * @param line The next line
+	 */
+	public void moveToLine(Line line){
+		if(line.getLineNumber() < lastLineNumber){
+			isWalkInOrder = false;
+		}
+		lastLineNumber = line.getLineNumber();
+		assignments.moveTo(line.getScope());
+	}
+
+	/**
+	 * Marks the variable as assigned a value at the current line, for the lines after it within
+	 * the same scope (and the scopes it holds).
+	 * @param var The variable
+	 */
+	public void initialize(Variable var){
+		assignments.assign(var.getSlot());
+	}
+
+	/**
+	 * Marks the variable as assigned a value in all the methods of the file: a parameter of a
+	 * method, or a global variable that is assigned a value in the global scope.
+	 * @param var The variable
+	 */
+	public void initializeInMethods(Variable var){
+		assignments.assignInMethods(var.getSlot());
+	}
+
+	/**
+	 * Adds a site in which the variable is assigned a value, as the tables are built. A global
+	 * variable that is assigned in the global scope is also marked as assigned in all the methods.
+	 * @param var The variable
+	 * @param lineNumber Number of the line of the assignment
+	 * @param scope Id of the scope of the line
+	 */
+	public void addInitializationSite(Variable var, int lineNumber, int scope){
+		var.getInitializationSites().add(lineNumber, scope, scopeTree);
+		if(scope == ScopeTree.GLOBAL_SCOPE){
+			initializeInMethods(var);
+		}
+	}
+
+	/**
+	 * @param var A variable that is visible from the line
+	 * @param line The current line (see moveToLine)
+	 * @return True iff the variable was definitely assigned a value before the line
+	 */
+	public boolean isInitialized(Variable var, Line line){
+		if(!isWalkInOrder){
+			return var.getInitializationSites().hasSiteBefore(line.getLineNumber(),
+					                                                  line.getScope(), scopeTree);
+		}
+		return assignments.isAssigned(var.getSlot(), line.getScope());
+	}
+
 }
@@ -1,11 +1,8 @@
 package oop.ex6.validator;
 
-import java.util.List;
-
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.TableAndScopeMaker;
 import oop.ex6.tables.VariableTable;
@@ -18,29 +15,20 @@ import oop.ex6.tables.VariableTable;
  */
 class ClosingBracketStateMachine implements StateMachine {
 
-	List<Line> lineList;
-	
-	/**
-	 * Constructor for class receives a list of lines.
-	 * @param lineList
-	 */
-	public ClosingBracketStateMachine(List<Line> lineList) {
-		this.lineList = lineList;
-	}
 	/* (non-Javadoc)
 	 * Checks syntax of line according to following conditions:
 	 * List should only contain a single token, and that token should be a
-	 * closing bracket. Throws an exception if does not answer these conditions.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * closing bracket. Returns an error if does not answer these conditions.
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
 	@Override
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.size() != 1
-				&& tokenList.get(tokenList.size() - 1).getTokenType() 
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenCount() != 1
+				&& line.getTokenType(line.getTokenCount() - 1) 
 				!= TokenType.CLOSINGBRACKET) {
-			throw new SyntaxException("Illegal closing bracket line");
+			return ErrorCode.ILLEGAL_CLOSING_BRACKET_LINE;
 		}
+		return null;
 	}
 
 	/* (non-Javadoc)
@@ -48,18 +36,18 @@ class ClosingBracketStateMachine implements StateMachine {
 	 * (if brackets are not balanced and there are too many - this will
 	 * be caught by the TableAndScopeMaker), except when it closes a method
 	 * and is not preceded by a "return" statement.
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line,
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line,
 	 * oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException, SyntaxException, 
-			                                                 InvalidTableAccessException{
-		if (line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			if (!lineList.get(line.getLineNumber() - 2).getLineType()
-					.equals(Line.LineType.RETURN)) {
-				throw new SemanticsException("Symantics error");
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		if (line.getScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			if (previousLine == null ||
+					!previousLine.getLineType().equals(Line.LineType.RETURN)) {
+				return ErrorCode.MISSING_RETURN;
 			}
 		}
+		return null;
 	}
 }
@@ -1,5 +1,6 @@
 package oop.ex6.validator;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.VariableTable;
@@ -13,22 +14,22 @@ class CommentStateMachine implements StateMachine {
 
 	/* (non-Javadoc)
 	 * Comment line is always syntactically valids
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
 	@Override
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		return;
+	public ErrorCode findSyntaxError(Line line) {
+		return null;
 	}
 
 	/* (non-Javadoc)
 	 * Comment line is always semantically valid.
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line, 
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line, 
 	 * oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException {
-		return;
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		return null;
 		
 	}
 
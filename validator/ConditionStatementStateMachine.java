@@ -1,9 +1,8 @@
 package oop.ex6.validator;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.TableAndScopeMaker;
 import oop.ex6.tables.Variable;
 import oop.ex6.tables.VariableTable;
@@ -27,131 +26,78 @@ class ConditionStatementStateMachine implements StateMachine {
 		WHILE_OR_IF, VAR_NAME, ANDBOOL, ORBOOL, BOOLEAN, CLOSE_PARENTHESIS, OPEN_BRACKETS;
 	}
 
+	// Literal values that are legal within a condition.
+	private static final TokenType[] CONDITION_VALUES = {TokenType.BOOLEANVAL,
+			TokenType.INTVAL, TokenType.DOUBLEVAL};
+
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.on(State.WHILE_OR_IF, State.VAR_NAME, TokenType.VARNAME)
+			.on(State.WHILE_OR_IF, State.BOOLEAN, CONDITION_VALUES)
+			.otherwise(State.WHILE_OR_IF, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.VAR_NAME, State.ANDBOOL, TokenType.ANDBOOL)
+			.on(State.VAR_NAME, State.ORBOOL, TokenType.ORBOOL)
+			.on(State.VAR_NAME, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.VAR_NAME, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.BOOLEAN, State.ANDBOOL, TokenType.ANDBOOL)
+			.on(State.BOOLEAN, State.ORBOOL, TokenType.ORBOOL)
+			.on(State.BOOLEAN, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.BOOLEAN, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.ANDBOOL, State.VAR_NAME, TokenType.VARNAME)
+			.on(State.ANDBOOL, State.BOOLEAN, CONDITION_VALUES)
+			.otherwise(State.ANDBOOL, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.ORBOOL, State.VAR_NAME, TokenType.VARNAME)
+			.on(State.ORBOOL, State.BOOLEAN, CONDITION_VALUES)
+			.otherwise(State.ORBOOL, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.CLOSE_PARENTHESIS, State.OPEN_BRACKETS, TokenType.OPENINGBRACKET)
+			.otherwise(State.CLOSE_PARENTHESIS, ErrorCode.EXPECTED_SEMICOLON)
+			.otherwise(State.OPEN_BRACKETS, ErrorCode.TOKEN_AFTER_END)
+			.build();
+
 	/* (non-Javadoc)
 	 * Runs through all tokens in line's tokenList, and ensures that they
 	 * match a legal state.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException{
-		State currentState = State.WHILE_OR_IF;
-		for (int i = 1; i < line.getTokenList().size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
-		}
+	public ErrorCode findSyntaxError(Line line) {
+		return TRANSITIONS.findSyntaxError(State.WHILE_OR_IF, line);
 	}
 
 	/* (non-Javadoc)
 	 * Checks that all the values inside the predicate are booleans (whether
 	 * literal boolean/int/double or a variable of those types that has been
 	 * assigned a value).
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line,
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line,
 	 *  oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException, SyntaxException, 
-			                                              InvalidTableAccessException {
-		if (line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			throw new SemanticsException("");
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		if (line.getScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.CONDITION_IN_GLOBAL_SCOPE;
 		}
 		State currentState = State.WHILE_OR_IF;
-		for (int i = 1; i < line.getTokenList().size(); ++i) {
-			Token token = line.getTokenList().get(i);
-			currentState = getNextState(currentState, token);
+		for (int i = 1; i < line.getTokenCount(); ++i) {
+			State nextState = TRANSITIONS.getNextState(currentState, line.getTokenType(i));
+			if (nextState == null) {
+				return TRANSITIONS.getError(currentState);
+			}
+			currentState = nextState;
 			if (currentState.equals(State.VAR_NAME)) {
-				Variable var = varTable.getVariableInLegalScope(
-						token.getName(), line.getScope());
+				Variable var = varTable.getBoundVariable(line, i);
+				if (var == null) {
+					return ErrorCode.VARIABLE_NOT_DECLARED;
+				}
 				if (!(var.getType().equals(VarType.INT)
 						|| var.getType().equals(VarType.BOOLEAN) || var
 						.getType().equals(VarType.DOUBLE))) {
-					throw new SemanticsException("Invalid Condition within if/while");
+					return ErrorCode.INVALID_CONDITION;
 				}
-				if (SemanticsValidator.wasVarInitializedInBadLine(var, line)) {
-					throw new SemanticsException("Variable within if/while wasn't initialized");
+				if (!varTable.isInitialized(var, line)) {
+					return ErrorCode.CONDITION_VARIABLE_NOT_INITIALIZED;
 				}
 			}
 
 		}
-	}
-
-	/**
-	 * Receives a current state and the following token, and determines
-	 * whether the token signifies a step a next legal state; returns new
-	 * current state, or throws exception if token does not signify legal state.
-	 * @param currentState
-	 * @param token
-	 * @return
-	 * @throws SyntaxException
-	 */
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException {
-		switch (currentState) {
-		case WHILE_OR_IF:
-			if (token.getTokenType().equals(TokenType.VARNAME)) {
-				return State.VAR_NAME;
-			}
-
-			if (isLegalTypeForCondition(token.getTokenType())) {
-				return State.BOOLEAN;
-			}
-
-			throw new SyntaxException("Expected variable name");
-
-		case VAR_NAME:
-		case BOOLEAN:
-			if (token.getTokenType().equals(TokenType.ANDBOOL)) {
-				return State.ANDBOOL;
-			}
-
-			if (token.getTokenType().equals(TokenType.ORBOOL)) {
-				return State.ORBOOL;
-			}
-
-			if (token.getTokenType().equals(TokenType.CLOSINGPARENTHESIS)) {
-				return State.CLOSE_PARENTHESIS;
-			}
-			throw new SyntaxException("Unexpected token");
-
-		case ANDBOOL:
-			if (token.getTokenType().equals(TokenType.VARNAME)) {
-				return State.VAR_NAME;
-			}
-
-			if (isLegalTypeForCondition(token.getTokenType())) {
-				return State.BOOLEAN;
-			}
-			
-			throw new SyntaxException("Expected variable name");
-
-		case ORBOOL:
-			if (token.getTokenType().equals(TokenType.VARNAME)) {
-				return State.VAR_NAME;
-			}
-
-			if (isLegalTypeForCondition(token.getTokenType())) {
-				return State.BOOLEAN;
-			}
-			
-			throw new SyntaxException("Expected variable name");
-
-		case CLOSE_PARENTHESIS:
-			if (token.getTokenType().equals(TokenType.OPENINGBRACKET)) {
-				return State.OPEN_BRACKETS;
-			}
-
-			throw new SyntaxException("Expected semicolon");
-
-		case OPEN_BRACKETS:
-			throw new SyntaxException(
-					"Nothing should appear after semicolon");
-
-		default:
-			throw new SyntaxException("Unknown state");
-		}
-	}
-
-	private boolean isLegalTypeForCondition(TokenType tokenType) {
-		return tokenType.equals(TokenType.BOOLEANVAL)
-				|| tokenType.equals(TokenType.INTVAL)
-				|| tokenType.equals(TokenType.DOUBLEVAL);
+		return null;
 	}
 }
@@ -2,10 +2,9 @@ package oop.ex6.validator;
 
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.VariableTable;
 
@@ -27,90 +26,46 @@ class FinalVarStateMachine implements StateMachine {
 		VAR_TYPE, VAR_VAL, EQUALS, FINAL_KEYWORD, VAR_NAME, COMMA, SEMICOLON;
 	}
 
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.onVarType(State.FINAL_KEYWORD, State.VAR_TYPE)
+			.otherwise(State.FINAL_KEYWORD, ErrorCode.EXPECTED_TYPE_AFTER_FINAL)
+			.on(State.VAR_TYPE, State.VAR_NAME, TokenType.VARNAME)
+			.otherwise(State.VAR_TYPE, ErrorCode.NO_VARIABLE_NAME_AFTER_TYPE)
+			.on(State.VAR_NAME, State.EQUALS, TokenType.EQUALS)
+			.otherwise(State.VAR_NAME, ErrorCode.EXPECTED_EQUALS_SIGN)
+			.onVarValue(State.EQUALS, State.VAR_VAL)
+			.on(State.EQUALS, State.VAR_VAL, TokenType.VARNAME)
+			.otherwise(State.EQUALS, ErrorCode.EXPECTED_VARIABLE_VALUE)
+			.on(State.VAR_VAL, State.COMMA, TokenType.COMMA)
+			.on(State.VAR_VAL, State.SEMICOLON, TokenType.SEMICOLON)
+			.otherwise(State.VAR_VAL, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.COMMA, State.VAR_NAME, TokenType.VARNAME)
+			.otherwise(State.COMMA, ErrorCode.EXPECTED_VARNAME)
+			.otherwise(State.SEMICOLON, ErrorCode.TOKEN_AFTER_END)
+			.build();
+
 	/* (non-Javadoc)
 	 * Runs through all tokens in line's tokenList, and ensures that they
 	 * match a legal state. Also checks that line ends in semicolon.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.get(tokenList.size() - 1).getTokenType() != TokenType.SEMICOLON) {
-			throw new SyntaxException("Doesn't end in semicolon");
-		}
-		State currentState = State.FINAL_KEYWORD;
-		for (int i = 1; i < tokenList.size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenType(line.getTokenCount() - 1) != TokenType.SEMICOLON) {
+			return ErrorCode.NO_SEMICOLON_AT_END;
 		}
+		return TRANSITIONS.findSyntaxError(State.FINAL_KEYWORD, line);
 	}
 
 	/* (non-Javadoc)
 	 * Is not implemented; semanticsValidation for final var line done from
 	 * regular variable declaration line.
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line,
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line,
 	 *  oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException, SyntaxException,
-			                                                 InvalidTableAccessException {
-
-	}
-	/**
-	 * Receives a current state and the following token, and determines
-	 * whether the token signifies a step a next legal state; returns new
-	 * current state, or throws exception if token does not signify legal state.
-	 * @param currentState
-	 * @param token
-	 * @return
-	 * @throws SyntaxException
-	 */
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException{
-		switch (currentState) {
-		case FINAL_KEYWORD:
-			if (TokenType.isVarType(token.getTokenType())) {
-				return State.VAR_TYPE;
-			}
-			throw new SyntaxException("Phrase after final declaration must be a variable type");
-		case VAR_TYPE:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME;
-			}
-			throw new SyntaxException("No variable name after type");
-
-		case VAR_NAME:
-			if (token.getTokenType() == TokenType.EQUALS) {
-				return State.EQUALS;
-			}
-			throw new SyntaxException("Expected equals sign");
-
-		case EQUALS:
-			if (TokenType.isVarValue(token.getTokenType())
-					|| token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_VAL;
-			}
-			throw new SyntaxException("Expected variable value");
-
-		case VAR_VAL:
-			if (token.getTokenType() == TokenType.COMMA) {
-				return State.COMMA;
-			}
-			if (token.getTokenType() == TokenType.SEMICOLON) {
-				return State.SEMICOLON;
-			}
-			throw new SyntaxException("Unexpected token");
-
-		case COMMA:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME;
-			}
-			throw new SyntaxException("Expected varname");
-
-		case SEMICOLON:
-			throw new SyntaxException("Nothing should appear after semicolon");
-		default:
-			throw new SyntaxException("Unknown state");
-		}
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		return null;
 	}
 }
@@ -0,0 +1,21 @@
+package oop.ex6.validator;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+
+/**
+ * Receives the errors found in the lines of a file, when the file is validated to its end
+ * rather than up to its first error.
+ * @author Alon and Michal
+ *
+ */
+public interface LineErrorListener {
+
+	/**
+	 * Called for every error found.
+	 * @param line The line the error was found in
+	 * @param error The error
+	 * @return True iff the validation should go on to the next line
+	 */
+	boolean errorFound(Line line, ErrorCode error);
+}
@@ -3,10 +3,9 @@ package oop.ex6.validator;
 import java.util.ArrayList;
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.TableAndScopeMaker;
 import oop.ex6.tables.VariableTable;
@@ -18,6 +17,7 @@ import oop.ex6.tables.Variable.VarType;
  */
 class MethodCallStateMachine implements StateMachine {
 
+	static final int METHOD_NAME_INDEX = 0;
 	private static final int BEGINNING_OF_ARG_LIST = 1;
 	private static final int NUM_OF_TOKENS_AFTER_ARG_LIST = 2;
 
@@ -31,22 +31,34 @@ class MethodCallStateMachine implements StateMachine {
 		METHOD_NAME, OPEN_PARENTHESIS, VAR_NAME_OR_VAL, COMMA, CLOSE_PARENTHESIS, SEMICOLON;
 	}
 
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.on(State.METHOD_NAME, State.VAR_NAME_OR_VAL, TokenType.VARNAME)
+			.onVarValue(State.METHOD_NAME, State.VAR_NAME_OR_VAL)
+			.on(State.METHOD_NAME, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.METHOD_NAME, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.VAR_NAME_OR_VAL, State.COMMA, TokenType.COMMA)
+			.on(State.VAR_NAME_OR_VAL, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.VAR_NAME_OR_VAL, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.COMMA, State.VAR_NAME_OR_VAL, TokenType.VARNAME)
+			.onVarValue(State.COMMA, State.VAR_NAME_OR_VAL)
+			.otherwise(State.COMMA, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.CLOSE_PARENTHESIS, State.SEMICOLON, TokenType.SEMICOLON)
+			.otherwise(State.CLOSE_PARENTHESIS, ErrorCode.EXPECTED_SEMICOLON)
+			.otherwise(State.SEMICOLON, ErrorCode.TOKEN_AFTER_END)
+			.build();
+
 	/*
 	 * (non-Javadoc) Runs through all tokens in line's tokenList, and ensures
 	 * that they match a legal state. Also checks that line ends in semicolon.
 	 * 
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.get(tokenList.size() - 1).getTokenType() != TokenType.SEMICOLON) {
-			throw new SyntaxException("Doesn't end in semicolon");
-		}
-		State currentState = State.METHOD_NAME;
-		for (int i = 1; i < tokenList.size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenType(line.getTokenCount() - 1) != TokenType.SEMICOLON) {
+			return ErrorCode.NO_SEMICOLON_AT_END;
 		}
+		return TRANSITIONS.findSyntaxError(State.METHOD_NAME, line);
 	}
 
 	/*
@@ -57,95 +69,73 @@ class MethodCallStateMachine implements StateMachine {
 	 * assigned before reference (or in global scope).
 	 * 
 	 * @see
-	 * oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line,
+	 * oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line,
 	 * oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException,
-			InvalidTableAccessException, SyntaxException {
-		// Checking legal scope:
-		if (line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			throw new SemanticsException(
-					"Attempt to call method from global scope");
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		List<VarType> argumentTypes = getArgumentTypes(line, varTable);
+		if (argumentTypes == null) {
+			return getArgumentTypesError(line, varTable);
 		}
 		// Checking that method exists and parameter list matches.
-		Token method = line.getTokenList().get(0);
+		return methodTable.checkCall(line.getTokenNameId(METHOD_NAME_INDEX), argumentTypes);
+
+	}
+
+	/**
+	 * Checks that the call is made from a legal scope, and returns the types of
+	 * the arguments the method is called with. Variables used as arguments must
+	 * exist in a legal scope and have values assigned before reference.
+	 * 
+	 * @param line
+	 * @param varTable
+	 * @return List of argument types, or null if the call or one of its arguments is illegal
+	 * (see getArgumentTypesError)
+	 */
+	List<VarType> getArgumentTypes(Line line, VariableTable varTable) {
+		// Checking legal scope:
+		if (line.getScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			return null;
+		}
 		List<VarType> paramList = new ArrayList<VarType>();
-		for (int i = BEGINNING_OF_ARG_LIST; i < line.getTokenList().size()
+		for (int i = BEGINNING_OF_ARG_LIST; i < line.getTokenCount()
 				- NUM_OF_TOKENS_AFTER_ARG_LIST; ++i) {
-			Token argument = line.getTokenList().get(i);
-			if (!argument.getTokenType().equals(TokenType.COMMA)) {
+			if (!line.getTokenType(i).equals(TokenType.COMMA)) {
 				// getVarTypeFromToken already checks whether a variable has
 				// been
 				// initialized in a legal line!
-				paramList.add(SemanticsValidator.getVarTypeFromToken(argument,
-						varTable, line));
+				VarType argumentType = SemanticsValidator.getVarTypeFromToken(line, i,
+						varTable);
+				if (argumentType == null) {
+					return null;
+				}
+				paramList.add(argumentType);
 			}
 		}
-
-		methodTable.verifyMethod(method.getName(), paramList);
-
+		return paramList;
 	}
 
 	/**
-	 * Receives a current state and the following token, and determines whether
-	 * the token signifies a step a next legal state; returns new current state,
-	 * or throws exception if token does not signify legal state.
+	 * Explains why getArgumentTypes returned no types for the call.
 	 * 
-	 * @param currentState
-	 * @param token
-	 * @return
-	 * @throws SyntaxException
+	 * @param line
+	 * @param varTable
+	 * @return The first error found in the call, or null if there is none
 	 */
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException {
-		switch (currentState) {
-		case METHOD_NAME:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME_OR_VAL;
-			}
-			if (TokenType.isVarValue(token.getTokenType())) {
-				return State.VAR_NAME_OR_VAL;
-			}
-
-			if (token.getTokenType() == TokenType.CLOSINGPARENTHESIS) {
-				return State.CLOSE_PARENTHESIS;
-			}
-			throw new SyntaxException("Expected variable name");
-
-		case VAR_NAME_OR_VAL:
-			if (token.getTokenType() == TokenType.COMMA) {
-				return State.COMMA;
-			}
-
-			if (token.getTokenType() == TokenType.CLOSINGPARENTHESIS) {
-				return State.CLOSE_PARENTHESIS;
-			}
-			throw new SyntaxException("Unexpected token");
-
-		case COMMA:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME_OR_VAL;
-			}
-			if (TokenType.isVarValue(token.getTokenType())) {
-				return State.VAR_NAME_OR_VAL;
-			}
-
-			throw new SyntaxException("Expected variable name");
-
-		case CLOSE_PARENTHESIS:
-			if (token.getTokenType() == TokenType.SEMICOLON) {
-				return State.SEMICOLON;
+	ErrorCode getArgumentTypesError(Line line, VariableTable varTable) {
+		if (line.getScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.METHOD_CALL_IN_GLOBAL_SCOPE;
+		}
+		for (int i = BEGINNING_OF_ARG_LIST; i < line.getTokenCount()
+				- NUM_OF_TOKENS_AFTER_ARG_LIST; ++i) {
+			if (!line.getTokenType(i).equals(TokenType.COMMA)
+					&& SemanticsValidator.getVarTypeFromToken(line, i, varTable) == null) {
+				return SemanticsValidator.getVarTypeError(line, i, varTable);
 			}
-
-			throw new SyntaxException("Expected semicolon");
-
-		case SEMICOLON:
-			throw new SyntaxException("Nothing should appear after semicolon");
-
-		default:
-			throw new SyntaxException("Unknown state");
 		}
+		return null;
 	}
+
 }
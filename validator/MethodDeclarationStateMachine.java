@@ -2,8 +2,8 @@ package oop.ex6.validator;
 
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.TableAndScopeMaker;
@@ -27,120 +27,56 @@ class MethodDeclarationStateMachine implements StateMachine {
 		VOID, METHOD_NAME, FINAL, VAR_TYPE, VAR_NAME, COMMA,
 		CLOSE_PARENTHESIS, OPEN_BRACKETS;
 	}
+
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.on(State.VOID, State.METHOD_NAME, TokenType.METHODNAME)
+			.otherwise(State.VOID, ErrorCode.EXPECTED_METHOD_NAME)
+			.on(State.METHOD_NAME, State.FINAL, TokenType.FINAL)
+			.onVarType(State.METHOD_NAME, State.VAR_TYPE)
+			.on(State.METHOD_NAME, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.METHOD_NAME, ErrorCode.EXPECTED_VARIABLE_TYPE)
+			.onVarType(State.FINAL, State.VAR_TYPE)
+			.otherwise(State.FINAL, ErrorCode.EXPECTED_VARIABLE_TYPE)
+			.on(State.VAR_TYPE, State.VAR_NAME, TokenType.VARNAME)
+			.otherwise(State.VAR_TYPE, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.on(State.VAR_NAME, State.COMMA, TokenType.COMMA)
+			.on(State.VAR_NAME, State.CLOSE_PARENTHESIS, TokenType.CLOSINGPARENTHESIS)
+			.otherwise(State.VAR_NAME, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.COMMA, State.FINAL, TokenType.FINAL)
+			.onVarType(State.COMMA, State.VAR_TYPE)
+			.otherwise(State.COMMA, ErrorCode.EXPECTED_VARIABLE_TYPE)
+			.on(State.CLOSE_PARENTHESIS, State.OPEN_BRACKETS, TokenType.OPENINGBRACKET)
+			.otherwise(State.CLOSE_PARENTHESIS, ErrorCode.EXPECTED_SEMICOLON)
+			.otherwise(State.OPEN_BRACKETS, ErrorCode.TOKEN_AFTER_END)
+			.build();
 	
 	/* (non-Javadoc)
 	 * Runs through all tokens in line's tokenList, and ensures that they
 	 * match a legal state. Also checks that line ends in opening bracket.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.get(tokenList.size() - 1).getTokenType()
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenType(line.getTokenCount() - 1)
 				!= TokenType.OPENINGBRACKET) {
-			throw new SyntaxException("Doesn't end in opening bracket");
+			return ErrorCode.NO_OPENING_BRACKET_AT_END;
 		}
 		
-		State currentState = State.VOID;
-		for (int i = 1; i < tokenList.size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
-		}
+		return TRANSITIONS.findSyntaxError(State.VOID, line);
 	}
 	
 		/* (non-Javadoc)
 		 * Method must be declared in global scope; any other problem in method
 		 * declaration line will be caught by syntaxValidtor.
-		 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line, 
+		 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line, 
 		 * oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 		 */
 		@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException {
-		if (!line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			throw new SemanticsException("Cannot declare method within method");
-		}
-		
-	}
-		/**
-		 * Receives a current state and the following token, and determines
-		 * whether the token signifies a step a next legal state; returns new
-		 * current state, or throws exception if token does not signify legal state.
-		 * @param currentState
-		 * @param token
-		 * @return
-		 * @throws SyntaxException
-		 */
-		
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException {
-		switch (currentState) {
-		case VOID:
-			if (token.getTokenType().equals(TokenType.METHODNAME)) {
-				return State.METHOD_NAME;
-			}
-			throw new SyntaxException("Expected legal method name");
-			
-		case METHOD_NAME:
-			if (token.getTokenType().equals(TokenType.FINAL)) {
-				return State.FINAL;
-			}
-			if (TokenType.isVarType(token.getTokenType())) {
-				return State.VAR_TYPE;
-			}
-			
-			if (token.getTokenType().equals(TokenType.CLOSINGPARENTHESIS)) {
-				return State.CLOSE_PARENTHESIS;
-			}
-			throw new SyntaxException("Expected variable type");
-			
-		case FINAL:
-			if (TokenType.isVarType(token.getTokenType())) {
-				return State.VAR_TYPE;
-			}
-			throw new SyntaxException("Expected variable type");
-			
-		case VAR_TYPE: 
-			if (token.getTokenType().equals(TokenType.VARNAME)) {
-				return State.VAR_NAME;
-			}
-			throw new SyntaxException("Expected variable name");
-			
-		case VAR_NAME: 
-			if (token.getTokenType().equals(TokenType.COMMA)) {
-				return State.COMMA;
-			}
-			
-			if (token.getTokenType().equals(TokenType.CLOSINGPARENTHESIS)) {
-				return State.CLOSE_PARENTHESIS;
-			}
-			throw new SyntaxException("Unexpected token");
-			
-		case COMMA:
-			if (token.getTokenType().equals(TokenType.FINAL)) {
-				return State.FINAL;
-			}
-			
-			if (TokenType.isVarType(token.getTokenType())) {
-				return State.VAR_TYPE;
-			}
-			throw new SyntaxException("Expected variable type");
-			
-		case CLOSE_PARENTHESIS:
-			if (token.getTokenType().equals(TokenType.OPENINGBRACKET)) {
-				return State.OPEN_BRACKETS;
-			}
-			
-			throw new SyntaxException("Expected semicolon");
-			
-		case OPEN_BRACKETS:
-			throw new SyntaxException(
-					"Nothing should appear after semicolon");
-			
-		default:
-			throw new SyntaxException("Unknown state");
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
+		if (line.getScope() != TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.NESTED_METHOD_DECLARATION;
 		}
+		return null;
 	}
-
-
-
 }
@@ -2,8 +2,8 @@ package oop.ex6.validator;
 
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.TableAndScopeMaker;
@@ -20,27 +20,27 @@ class ReturnStateMachine implements StateMachine {
 	/* (non-Javadoc)
 	 * Runs through all tokens in line's tokenList, and ensures that they
 	 * match a legal state. Also checks that line ends in semicolons.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException{
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.size() != 1
-				&& tokenList.get(tokenList.size() - 1).getTokenType() != TokenType.RETURN) {
-			throw new SyntaxException("Illegal closing bracket line");
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenCount() != 1
+				&& line.getTokenType(line.getTokenCount() - 1) != TokenType.RETURN) {
+			return ErrorCode.ILLEGAL_CLOSING_BRACKET_LINE;
 		}
+		return null;
 	}
 	/* (non-Javadoc)
 	 * Return statement must appear in non-global scope;
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line, 
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line, 
 	 * oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-				MethodTable methodTable) throws SemanticsException {
-		if (line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			throw new SemanticsException("Return statement cannot appear in global scope");
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+				MethodTable methodTable) {
+		if (line.getScope() == TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.RETURN_IN_GLOBAL_SCOPE;
 		}
-		
+		return null;
 	}
 }
@@ -1,5 +1,7 @@
 package oop.ex6.validator;
 
+import oop.ex6.line.ErrorCode;
+
 /**
  * An exception thrown when the file's semantics is invalid
  * @author Alon and Michal
@@ -8,8 +10,27 @@ package oop.ex6.validator;
 public class SemanticsException extends Exception{
 	private static final long serialVersionUID = 1L;	
 	
+	private final ErrorCode errorCode;
+	
 	public SemanticsException(String message){
 		super(message);
+		errorCode = null;
+	}
+	
+	/**
+	 * Constructor
+	 * @param errorCode The error, whose message is the message of the exception
+	 */
+	public SemanticsException(ErrorCode errorCode){
+		super(errorCode.getMessage());
+		this.errorCode = errorCode;
+	}
+	
+	/**
+	 * @return The error, or null if the exception was created with a message only
+	 */
+	public ErrorCode getErrorCode(){
+		return errorCode;
 	}
 
 }
@@ -1,10 +1,13 @@
 package oop.ex6.validator;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
 import oop.ex6.line.Line.LineType;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
 import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.TableAndScopeMaker;
@@ -16,15 +19,40 @@ import oop.ex6.tables.Variable.VarType;
 /**
  * Semantics validator runs through list of lines, and checks that each line is
  * semantically valid within the context of the sJava file.
+ * The validator can also run over the file in parts (see validateLines), in which case
+ * calls to methods that weren't declared yet can be deferred until the end of the file.
  * 
  * @author Michal and Alon
  *
  */
 public class SemanticsValidator {
 
+	private static final MethodCallStateMachine METHOD_CALL_STATE_MACHINE = 
+			new MethodCallStateMachine();
+	// The state machine that validates each type of line. State machines are stateless, so
+	// they are created once and shared by all validators.
+	private static final Map<LineType, StateMachine> STATE_MACHINES = createStateMachines();
+
 	List<Line> lineList;
 	VariableTable varTable;
 	MethodTable methodTable;
+	List<DeferredMethodCall> deferredCalls;
+
+	/**
+	 * A call to a method that wasn't declared yet when the call was validated. The types of
+	 * the arguments were already checked, only the method's signature is left to verify.
+	 * @author Michal and Alon
+	 *
+	 */
+	private static class DeferredMethodCall {
+		private final int methodNameId;
+		private final List<VarType> argumentTypes;
+
+		private DeferredMethodCall(int methodNameId, List<VarType> argumentTypes) {
+			this.methodNameId = methodNameId;
+			this.argumentTypes = argumentTypes;
+		}
+	}
 
 	/**
 	 * Constructor receives list of lines, variable table and method table as
@@ -41,6 +69,35 @@ public class SemanticsValidator {
 		this.methodTable = methodTable;
 	}
 
+	/**
+	 * Constructor for validating the file in parts, using validateLines. Calls to methods that
+	 * haven't been declared yet are deferred until verifyDeferredCalls is called.
+	 * 
+	 * @param varTable
+	 * @param methodTable
+	 */
+	public SemanticsValidator(VariableTable varTable, MethodTable methodTable) {
+		this(varTable, methodTable, true);
+	}
+
+	/**
+	 * Constructor for validating the file in parts, using validateLines.
+	 * 
+	 * @param varTable
+	 * @param methodTable
+	 * @param defersCalls True iff calls to methods that haven't been declared yet should be
+	 * deferred until verifyDeferredCalls is called, rather than being errors, as they are when
+	 * all the methods are declared in the tables before the lines are validated
+	 */
+	public SemanticsValidator(VariableTable varTable, MethodTable methodTable,
+			boolean defersCalls) {
+		this.varTable = varTable;
+		this.methodTable = methodTable;
+		if (defersCalls) {
+			deferredCalls = new ArrayList<DeferredMethodCall>();
+		}
+	}
+
 	/**
 	 * Main function of SemanticsValidator class, runs over list of lines and
 	 * validates each line according to type. When reaching the end of the list,
@@ -53,121 +110,267 @@ public class SemanticsValidator {
 	 */
 	public void validateSemantics() throws SemanticsException, SyntaxException,
 			InvalidTableAccessException {
-		updateVarInitiliazationLines();
-		for (Line line : lineList) {
-			validateLine(line);
+		throwError(checkSemantics());
+	}
+
+	/**
+	 * Like validateSemantics, but returns the first error found instead of throwing it.
+	 * 
+	 * @return The error, or null if the lines are semantically valid
+	 */
+	public ErrorCode checkSemantics() {
+		ErrorCode error = checkLines(lineList);
+		if (error != null) {
+			return error;
 		}
-		Line lastLine = lineList.get(lineList.size() - 1);
-		if (!lastLine.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)) {
-			throw new SemanticsException("Not all brackets were closed");
+		return checkLastLine(lineList.isEmpty() ? null : lineList.get(lineList.size() - 1));
+	}
+
+	/**
+	 * Checks that all the brackets of the file were closed by its last line. A file without any
+	 * line (or with blank lines only) has no brackets to close, and is valid.
+	 * 
+	 * @param lastLine The last line of the file, or null if it has no lines
+	 * @return The error, or null if the file ends in the global scope
+	 */
+	public static ErrorCode checkLastLine(Line lastLine) {
+		if (lastLine != null && lastLine.getScope() != TableAndScopeMaker.GLOBAL_SCOPE) {
+			return ErrorCode.UNCLOSED_BRACKETS;
 		}
+		return null;
 	}
 
 	/**
-	 * Iterates over all lines in the file, and if the line is of a type that can
-	 * include initiliazation of a variable, it updates the variable table
-	 * to that effect.
-	 * @throws InvalidTableAccessException
+	 * Validates the semantics of all the lines like validateSemantics, but goes on to the next
+	 * line after an error, and reports every error to the given listener.
+	 * 
+	 * @param listener Receives the errors, and decides whether to go on after each of them
 	 */
-	private void updateVarInitiliazationLines() throws InvalidTableAccessException {
+	public void validateSemantics(LineErrorListener listener) {
+		Line previousLine = null;
 		for (Line line : lineList) {
-			LineType lineType = line.getLineType();
-			if (lineType.equals(LineType.FINAL_VAR_DECLARATION)
-					|| lineType.equals(LineType.VAR_DECLARATION)
-					|| lineType.equals(LineType.VAR_ASSIGNMENT)) {
-				initializeVarsInVariableLine(line);
+			ErrorCode error = validateLine(line, previousLine);
+			if (error != null && !listener.errorFound(line, error)) {
+				return;
 			}
+			previousLine = line;
+		}
+		ErrorCode error = checkLastLine(previousLine);
+		if (error != null) {
+			listener.errorFound(previousLine, error);
 		}
 	}
 
 	/**
-	 * Receives a single line, and for each variable in line for which there is
-	 * an assignment, updates lineInitialized in Variable object.
-	 * @param line
+	 * Validates a sequence of consecutive lines of the file, each line according to type.
+	 * 
+	 * @param lines
+	 * @throws SemanticsException
+	 * @throws SyntaxException
 	 * @throws InvalidTableAccessException
 	 */
-	private void initializeVarsInVariableLine(Line line) throws InvalidTableAccessException {
-		List<Token> tokenList = line.getTokenList();
-		for (int i = 0; i < tokenList.size() -1; ++i) {
-			Token token = tokenList.get(i);
-			Token nextToken = tokenList.get(i + 1);
-			if (token.getTokenType().equals(TokenType.VARNAME)) {
-				Variable newVar = varTable.getVariableInLegalScope(
-						token.getName(), line.getScope());
-				if (nextToken.getTokenType().equals(TokenType.EQUALS)) {
-					newVar.initialize(line.getLineNumber(), line.getScope());
-				}
+	public void validateLines(List<Line> lines) throws SemanticsException, SyntaxException,
+			InvalidTableAccessException {
+		throwError(checkLines(lines));
+	}
+
+	/**
+	 * Like validateLines, but returns the first error found instead of throwing it.
+	 * 
+	 * @param lines
+	 * @return The error, or null if the lines are semantically valid
+	 */
+	public ErrorCode checkLines(List<Line> lines) {
+		Line previousLine = null;
+		for (Line line : lines) {
+			ErrorCode error = validateLine(line, previousLine);
+			if (error != null) {
+				return error;
 			}
+			previousLine = line;
 		}
+		return null;
 	}
 
 	/**
-	 * Creates a stateMachine depending on lineType, and then validates syntax
-	 * according to specific stateMachine.
+	 * Validates the next line of the file right after it was added to the tables, instead of
+	 * validating the whole file at its end.
 	 * 
 	 * @param line
+	 * @param previousLine The line before the given one, or null if there is none
 	 * @throws SemanticsException
 	 * @throws SyntaxException
 	 * @throws InvalidTableAccessException
 	 */
-	private void validateLine(Line line) throws SemanticsException,
+	public void validateNextLine(Line line, Line previousLine) throws SemanticsException,
 			SyntaxException, InvalidTableAccessException {
+		throwError(checkNextLine(line, previousLine));
+	}
+
+	/**
+	 * Like validateNextLine, but returns the error instead of throwing it.
+	 * 
+	 * @param line
+	 * @param previousLine The line before the given one, or null if there is none
+	 * @return The error, or null if the line is semantically valid
+	 */
+	public ErrorCode checkNextLine(Line line, Line previousLine) {
+		return validateLine(line, previousLine);
+	}
+
+	/**
+	 * Verifies the calls that were deferred because the called method wasn't
+	 * declared yet. To be called once all the lines of the file were validated.
+	 * 
+	 * @throws InvalidTableAccessException
+	 */
+	public void verifyDeferredCalls() throws InvalidTableAccessException {
+		ErrorCode error = checkDeferredCalls();
+		if (error != null) {
+			throw new InvalidTableAccessException(error);
+		}
+	}
+
+	/**
+	 * Like verifyDeferredCalls, but returns the first error found instead of throwing it.
+	 * 
+	 * @return The error, or null if all the calls are legal
+	 */
+	public ErrorCode checkDeferredCalls() {
+		for (DeferredMethodCall call : deferredCalls) {
+			ErrorCode error = methodTable.checkCall(call.methodNameId, call.argumentTypes);
+			if (error != null) {
+				return error;
+			}
+		}
+		deferredCalls.clear();
+		return null;
+	}
+
+	/**
+	 * @param line
+	 * @return True iff the line is of a type that can include initialization of a variable
+	 */
+	private static boolean isVariableLine(Line line) {
+		LineType lineType = line.getLineType();
+		return lineType.equals(LineType.FINAL_VAR_DECLARATION)
+				|| lineType.equals(LineType.VAR_DECLARATION)
+				|| lineType.equals(LineType.VAR_ASSIGNMENT);
+	}
+
+	/**
+	 * Receives a single line, and marks each variable in line for which there is
+	 * an assignment as initialized, for the lines that follow it.
+	 * @param line
+	 * @return The error, or null if all the variables of the line were found
+	 */
+	private ErrorCode initializeVarsInVariableLine(Line line) {
+		for (int i = 0; i < line.getTokenCount() -1; ++i) {
+			if (line.getTokenType(i).equals(TokenType.VARNAME)) {
+				Variable newVar = varTable.getBoundVariable(line, i);
+				if (newVar == null) {
+					return ErrorCode.VARIABLE_NOT_DECLARED;
+				}
+				if (line.getTokenType(i + 1).equals(TokenType.EQUALS)) {
+					varTable.initialize(newVar);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the variable names of the line, finds the stateMachine of the
+	 * lineType, and then validates semantics according to specific stateMachine.
+	 * The variables that the line assigns are then marked as initialized, even
+	 * if the line isn't valid.
+	 * 
+	 * @param line
+	 * @param previousLine The line before the given one, or null if there is none
+	 * @return The error, or null if the line is semantically valid
+	 */
+	private ErrorCode validateLine(Line line, Line previousLine) {
+		varTable.moveToLine(line);
+		varTable.resolveNames(line);
+		ErrorCode error = findLineError(line, previousLine);
+		if (isVariableLine(line)) {
+			ErrorCode initializationError = initializeVarsInVariableLine(line);
+			if (error == null) {
+				error = initializationError;
+			}
+		}
+		return error;
+	}
+
+	private ErrorCode findLineError(Line line, Line previousLine) {
 		LineType type = line.getLineType();
-		StateMachine stateMachine;
-		switch (type) {
-		case FINAL_VAR_DECLARATION:
-		case VAR_DECLARATION:
-			stateMachine = new VarDeclarationStateMachine();
-			break;
-		case VAR_ASSIGNMENT:
-			stateMachine = new VarAssignmentStateMachine();
-			break;
-		case METHOD_DECLARATION:
-			stateMachine = new MethodDeclarationStateMachine();
-			break;
-		case METHOD_CALL:
-			stateMachine = new MethodCallStateMachine();
-			break;
-		case IF_STATEMENT:
-		case WHILE_STATEMENT:
-			stateMachine = new ConditionStatementStateMachine();
-			break;
-		case RETURN:
-			stateMachine = new ReturnStateMachine();
-			break;
-		case CLOSING_BRACKET:
-			stateMachine = new ClosingBracketStateMachine(lineList);
-			break;
-		case COMMENT:
-			stateMachine = new CommentStateMachine();
-			break;
+		if (type == LineType.METHOD_CALL && deferredCalls != null) {
+			int methodNameId = line.getTokenNameId(MethodCallStateMachine.METHOD_NAME_INDEX);
+			if (!methodTable.isDeclared(methodNameId)) {
+				List<VarType> argumentTypes = 
+						METHOD_CALL_STATE_MACHINE.getArgumentTypes(line, varTable);
+				if (argumentTypes == null) {
+					return METHOD_CALL_STATE_MACHINE.getArgumentTypesError(line, varTable);
+				}
+				deferredCalls.add(new DeferredMethodCall(methodNameId, argumentTypes));
+				return null;
+			}
+		}
+		return STATE_MACHINES.get(type).findSemanticsError(line, previousLine, varTable, 
+				                                                             methodTable);
+	}
+
+	/*
+	 * Throws the given error as the exception of its category, if it isn't null.
+	 */
+	private static void throwError(ErrorCode error) throws SemanticsException, SyntaxException,
+			InvalidTableAccessException {
+		if (error == null) {
+			return;
+		}
+		switch (error.getCategory()) {
+		case TABLE:
+			throw new InvalidTableAccessException(error);
+		case SYNTAX:
+			throw new SyntaxException(error);
 		default:
-			throw new IllegalArgumentException();
+			throw new SemanticsException(error);
 		}
+	}
 
-		stateMachine.isLineSemanticsValid(line, varTable, methodTable);
-		return;
+	private static Map<LineType, StateMachine> createStateMachines() {
+		Map<LineType, StateMachine> stateMachines = 
+				new EnumMap<LineType, StateMachine>(LineType.class);
+		// Final declarations are validated the same way as regular ones.
+		StateMachine varDeclarationStateMachine = new VarDeclarationStateMachine();
+		stateMachines.put(LineType.FINAL_VAR_DECLARATION, varDeclarationStateMachine);
+		stateMachines.put(LineType.VAR_DECLARATION, varDeclarationStateMachine);
+		stateMachines.put(LineType.VAR_ASSIGNMENT, new VarAssignmentStateMachine());
+		stateMachines.put(LineType.METHOD_DECLARATION, new MethodDeclarationStateMachine());
+		stateMachines.put(LineType.METHOD_CALL, METHOD_CALL_STATE_MACHINE);
+		StateMachine conditionStateMachine = new ConditionStatementStateMachine();
+		stateMachines.put(LineType.IF_STATEMENT, conditionStateMachine);
+		stateMachines.put(LineType.WHILE_STATEMENT, conditionStateMachine);
+		stateMachines.put(LineType.RETURN, new ReturnStateMachine());
+		stateMachines.put(LineType.CLOSING_BRACKET, new ClosingBracketStateMachine());
+		stateMachines.put(LineType.COMMENT, new CommentStateMachine());
+		return stateMachines;
 	}
 
 	/**
-	 * Receives a token representing a variable or a literal, a variable table
-	 * and a line, and checks what variable type matches the method. If token
+	 * Receives a line, the index of a token representing a variable or a literal
+	 * and a variable table, and checks what variable type matches the method. If token
 	 * represents a variable, it checks that the variable exists in the table
-	 * with a value that was assigned before the reference (or in a global
-	 * scope).
+	 * and was definitely assigned a value before the reference.
 	 * 
-	 * @param token
-	 * @param varTable
 	 * @param line
-	 * @return VarType of Token
-	 * @throws InvalidTableAccessException
-	 * @throws SyntaxException
-	 * @throws SemanticsException
+	 * @param tokenIndex
+	 * @param varTable
+	 * @return VarType of Token, or null if the token has no legal type (see getVarTypeError)
 	 */
-	static VarType getVarTypeFromToken(Token token, VariableTable varTable,
-			Line line) throws InvalidTableAccessException, SyntaxException,
-			SemanticsException {
-		TokenType tokenType = token.getTokenType();
+	static VarType getVarTypeFromToken(Line line, int tokenIndex,
+			VariableTable varTable) {
+		TokenType tokenType = line.getTokenType(tokenIndex);
 		switch (tokenType) {
 		case INTVAL:
 		case INT:
@@ -185,56 +388,31 @@ public class SemanticsValidator {
 		case BOOLEAN:
 			return VarType.BOOLEAN;
 		case VARNAME:
-			Variable variable = varTable.getVariableInLegalScope(
-					token.getName(), line.getScope());
-			if (!wasVarInitializedInBadLine(variable, line)) {
+			Variable variable = varTable.getBoundVariable(line, tokenIndex);
+			if (variable != null && varTable.isInitialized(variable, line)) {
 				return variable.getType();
 			}
-			throw new SemanticsException(
-					"Variable does not exist with value in legal scope");
+			return null;
 		default:
-			throw new SyntaxException("Illegal TokenType");
+			return null;
 		}
 	}
 
 	/**
-	 * Receives a variable and a line number, and checks whether variable has
-	 * been assigned a value before the desired line, or in the global scope.
+	 * Explains why getVarTypeFromToken found no type for the token.
 	 * 
-	 * @param var Variable object to be checked
-	 * @param lineNumber Line number to be checked
-	 * @return true iff the given variable wasn't initialized in a location that
-	 * allows it to be used within the current line
+	 * @param line
+	 * @param tokenIndex
+	 * @param varTable
+	 * @return The error of the token
 	 */
-	static boolean wasVarInitializedInBadLine(Variable var, Line line) {
-			if(var.lineInitialized() == Variable.NOT_INITIALIZED){
-				return true;
-			}
-			
-			if(!var.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)){
-				if(!var.getScope().equals(line.getScope()) || (!var.scopeInitialized(). 
-						     equals(line.getScope())) ||
-						var.lineInitialized() >= line.getLineNumber()){
-					return true;
-					
-				}
-				
-			}else{
-				if(line.getScope().equals(TableAndScopeMaker.GLOBAL_SCOPE)){
-					if(var.lineInitialized() >= line.getLineNumber()){
-						return true;
-					}
-				}else{
-					if(!var.scopeInitialized().
-									equals(TableAndScopeMaker.GLOBAL_SCOPE)){
-						if(!var.scopeInitialized().equals(line.getScope())){
-						return true;
-						}
-					}
-				}
-			}
-			
-			return false;				
-				
+	static ErrorCode getVarTypeError(Line line, int tokenIndex, VariableTable varTable) {
+		if (line.getTokenType(tokenIndex) != TokenType.VARNAME) {
+			return ErrorCode.ILLEGAL_TOKEN_TYPE;
+		}
+		if (varTable.getBoundVariable(line, tokenIndex) == null) {
+			return ErrorCode.VARIABLE_NOT_DECLARED;
+		}
+		return ErrorCode.NO_VALUE_IN_SCOPE;
 	}
 }
@@ -1,13 +1,14 @@
 package oop.ex6.validator;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.VariableTable;
 import oop.ex6.tables.MethodTable;
 
 /**
  * Interface for StateMachine, to be implemented separately for 
- * each line type.
+ * each line type. State machines hold no state of their own (their transitions are kept
+ * in an immutable TransitionTable), so a single instance of each is shared by all lines.
  * @author Alon and Michal
  *
  */
@@ -18,9 +19,9 @@ interface StateMachine {
 	 * line type: Each state must be following by one of several options, 
 	 * as delineated by each specific state machine.
 	 * @param line
-	 * @throws SyntaxException
+	 * @return The syntax error found in the line, or null if there is none
 	 */
-	void isLineSyntaxValid(Line line) throws SyntaxException;
+	ErrorCode findSyntaxError(Line line);
 
 	/**
 	 * Checks whether the semantics of each line are legal; if variables
@@ -28,14 +29,12 @@ interface StateMachine {
 	 * a line is called within a legal scope; whether a called method exists,
 	 * and if it's called with the correct arguments, etc.
 	 * @param line
+	 * @param previousLine The line before the given one, or null if there is none
 	 * @param varTable
 	 * @param methodTable
-	 * @throws SemanticsException
-	 * @throws SyntaxException
-	 * @throws InvalidTableAccessException
+	 * @return The first error found in the line, or null if there is none
 	 */
-	void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException, SyntaxException, 
-			                                            InvalidTableAccessException;
+	ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable);
 
 }
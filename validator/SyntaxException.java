@@ -1,5 +1,6 @@
 package oop.ex6.validator;
 
+import oop.ex6.line.ErrorCode;
 
 /**
  * An exception thrown when the file's syntax is invalid
@@ -9,8 +10,27 @@ package oop.ex6.validator;
 public class SyntaxException extends Exception{
 	private static final long serialVersionUID = 1L;	
 	
+	private final ErrorCode errorCode;
+	
 	public SyntaxException(String message){
 		super(message);
+		errorCode = null;
+	}
+	
+	/**
+	 * Constructor
+	 * @param errorCode The error, whose message is the message of the exception
+	 */
+	public SyntaxException(ErrorCode errorCode){
+		super(errorCode.getMessage());
+		this.errorCode = errorCode;
+	}
+	
+	/**
+	 * @return The error, or null if the exception was created with a message only
+	 */
+	public ErrorCode getErrorCode(){
+		return errorCode;
 	}
 
 }
@@ -1,5 +1,9 @@
 package oop.ex6.validator;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
 import oop.ex6.line.Line.LineType;
 
@@ -14,6 +18,10 @@ import oop.ex6.line.Line.LineType;
  */
 public class SyntaxValidator {
 
+	// The state machine that validates each type of line. State machines are stateless, so
+	// they are created once and shared by all validators.
+	private static final Map<LineType, StateMachine> STATE_MACHINES = createStateMachines();
+
 	/**
 	 * The main function of the validator, runs over each line of the file and
 	 * checks whether it is syntactically valid. The rule of thumb is if there
@@ -23,43 +31,40 @@ public class SyntaxValidator {
 	 * 
 	 */
 	public void validate(Line line) throws SyntaxException{
-		LineType type = line.getLineType();
-		StateMachine stateMachine;
-		switch (type) {
-		case FINAL_VAR_DECLARATION:
-			stateMachine = new FinalVarStateMachine();
-			break;
-		case VAR_DECLARATION:
-			stateMachine = new VarDeclarationStateMachine();
-			break;
-		case VAR_ASSIGNMENT:
-			stateMachine = new VarAssignmentStateMachine();
-			break;
-		case METHOD_DECLARATION:
-			stateMachine = new MethodDeclarationStateMachine();
-			break;
-		case METHOD_CALL:
-			stateMachine = new MethodCallStateMachine();
-			break;
-		case IF_STATEMENT:
-		case WHILE_STATEMENT:
-			stateMachine = new ConditionStatementStateMachine();
-			break;
-		case RETURN:
-			stateMachine = new ReturnStateMachine();
-			break;
-		case CLOSING_BRACKET:
-			stateMachine = new ClosingBracketStateMachine(null);
-			break;
-		case COMMENT:
-			stateMachine = new CommentStateMachine();
-			break;
-		default:
-			throw new IllegalArgumentException();
+		ErrorCode error = check(line);
+		if (error != null) {
+			throw new SyntaxException(error);
+		}
+	}
+
+	/**
+	 * Like validate, but returns the error instead of throwing it. A line whose type couldn't
+	 * be determined can't be validated, and its type error is returned.
+	 * @param line
+	 * @return The error, or null if the line is syntactically valid
+	 */
+	public ErrorCode check(Line line){
+		if (line.getTypeError() != null) {
+			return line.getTypeError();
 		}
+		return STATE_MACHINES.get(line.getLineType()).findSyntaxError(line);
+	}
 
-		stateMachine.isLineSyntaxValid(line);
-		return;
+	private static Map<LineType, StateMachine> createStateMachines() {
+		Map<LineType, StateMachine> stateMachines = 
+				new EnumMap<LineType, StateMachine>(LineType.class);
+		stateMachines.put(LineType.FINAL_VAR_DECLARATION, new FinalVarStateMachine());
+		stateMachines.put(LineType.VAR_DECLARATION, new VarDeclarationStateMachine());
+		stateMachines.put(LineType.VAR_ASSIGNMENT, new VarAssignmentStateMachine());
+		stateMachines.put(LineType.METHOD_DECLARATION, new MethodDeclarationStateMachine());
+		stateMachines.put(LineType.METHOD_CALL, new MethodCallStateMachine());
+		StateMachine conditionStateMachine = new ConditionStatementStateMachine();
+		stateMachines.put(LineType.IF_STATEMENT, conditionStateMachine);
+		stateMachines.put(LineType.WHILE_STATEMENT, conditionStateMachine);
+		stateMachines.put(LineType.RETURN, new ReturnStateMachine());
+		stateMachines.put(LineType.CLOSING_BRACKET, new ClosingBracketStateMachine());
+		stateMachines.put(LineType.COMMENT, new CommentStateMachine());
+		return stateMachines;
 	}
 
 }
@@ -0,0 +1,166 @@
+package oop.ex6.validator;
+
+import java.util.Arrays;
+
+import oop.ex6.line.ErrorCode;
+import oop.ex6.line.Line;
+import oop.ex6.line.TokenType;
+
+/**
+ * The transitions of a state machine, held as a matrix indexed by the ordinal of the current
+ * state and the ordinal of the next token's type. A transition that isn't in the matrix is
+ * a syntax error, whose code depends on the current state.
+ * A table is built once, through its builder, and is immutable afterwards, so the state machines
+ * that use it hold no state of their own and can be shared.
+ * @author Michal and Alon
+ *
+ * @param <S> The enum of the state machine's states
+ */
+final class TransitionTable<S extends Enum<S>> {
+
+	private static final int NO_TRANSITION = -1;
+	private static final int TOKEN_TYPE_COUNT = TokenType.values().length;
+
+	private final S[] states;
+	private final int[][] transitions;
+	private final ErrorCode[] errors;
+
+	private TransitionTable(S[] states, int[][] transitions, ErrorCode[] errors) {
+		this.states = states;
+		this.transitions = transitions;
+		this.errors = errors;
+	}
+
+	/**
+	 * @param stateClass The enum of the state machine's states
+	 * @return A builder of a table with no transitions
+	 */
+	static <S extends Enum<S>> Builder<S> builder(Class<S> stateClass) {
+		return new Builder<S>(stateClass);
+	}
+
+	/**
+	 * Receives a current state and the following token, and returns the next state.
+	 * @param currentState
+	 * @param tokenType
+	 * @return The next state, or null if the token doesn't lead to a legal state
+	 */
+	S getNextState(S currentState, TokenType tokenType) {
+		int nextState = transitions[currentState.ordinal()][tokenType.ordinal()];
+		return nextState == NO_TRANSITION ? null : states[nextState];
+	}
+
+	/**
+	 * @param currentState
+	 * @return The error of a token that doesn't lead out of the given state
+	 */
+	ErrorCode getError(S currentState) {
+		return errors[currentState.ordinal()];
+	}
+
+	/**
+	 * Runs over the tokens of the line that follow its first one, starting at the given state.
+	 * @param firstState The state of the line's first token
+	 * @param line
+	 * @return The error of the first token that doesn't lead to a legal state, or null if
+	 * there is none
+	 */
+	ErrorCode findSyntaxError(S firstState, Line line) {
+		int currentState = firstState.ordinal();
+		for (int i = 1; i < line.getTokenCount(); ++i) {
+			int nextState = transitions[currentState][line.getTokenType(i).ordinal()];
+			if (nextState == NO_TRANSITION) {
+				return errors[currentState];
+			}
+			currentState = nextState;
+		}
+		return null;
+	}
+
+	/**
+	 * Builds a transition table.
+	 * @author Michal and Alon
+	 *
+	 * @param <S> The enum of the state machine's states
+	 */
+	static final class Builder<S extends Enum<S>> {
+
+		private final S[] states;
+		private final int[][] transitions;
+		private final ErrorCode[] errors;
+
+		private Builder(Class<S> stateClass) {
+			states = stateClass.getEnumConstants();
+			transitions = new int[states.length][TOKEN_TYPE_COUNT];
+			for (int[] row : transitions) {
+				Arrays.fill(row, NO_TRANSITION);
+			}
+			errors = new ErrorCode[states.length];
+			Arrays.fill(errors, ErrorCode.UNKNOWN_STATE);
+		}
+
+		/**
+		 * Adds transitions from the given state to the next state, for each of the token types.
+		 * @param from Current state
+		 * @param to Next state
+		 * @param tokenTypes Types of the tokens that lead from the current state to the next one
+		 * @return This builder
+		 */
+		Builder<S> on(S from, S to, TokenType... tokenTypes) {
+			for (TokenType tokenType : tokenTypes) {
+				transitions[from.ordinal()][tokenType.ordinal()] = to.ordinal();
+			}
+			return this;
+		}
+
+		/**
+		 * Adds transitions from the given state to the next state, for each token type that is a
+		 * variable type (int, double, String, char, boolean).
+		 * @param from Current state
+		 * @param to Next state
+		 * @return This builder
+		 */
+		Builder<S> onVarType(S from, S to) {
+			for (TokenType tokenType : TokenType.values()) {
+				if (TokenType.isVarType(tokenType)) {
+					on(from, to, tokenType);
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Adds transitions from the given state to the next state, for each token type that is a
+		 * literal value.
+		 * @param from Current state
+		 * @param to Next state
+		 * @return This builder
+		 */
+		Builder<S> onVarValue(S from, S to) {
+			for (TokenType tokenType : TokenType.values()) {
+				if (TokenType.isVarValue(tokenType)) {
+					on(from, to, tokenType);
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the error found when no transition leads out of the given state.
+		 * @param from Current state
+		 * @param error The error
+		 * @return This builder
+		 */
+		Builder<S> otherwise(S from, ErrorCode error) {
+			errors[from.ordinal()] = error;
+			return this;
+		}
+
+		/**
+		 * @return The table
+		 */
+		TransitionTable<S> build() {
+			return new TransitionTable<S>(states, transitions, errors);
+		}
+	}
+}
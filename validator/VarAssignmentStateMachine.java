@@ -2,10 +2,9 @@ package oop.ex6.validator;
 
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.Variable;
 import oop.ex6.tables.VariableTable;
@@ -30,110 +29,78 @@ class VarAssignmentStateMachine implements StateMachine {
 	private static enum State {
 		VAR_VAL, EQUALS, VAR_NAME, SEMICOLON;
 	}
+
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.on(State.VAR_NAME, State.EQUALS, TokenType.EQUALS)
+			.otherwise(State.VAR_NAME, ErrorCode.EXPECTED_EQUALS_SIGN)
+			.onVarValue(State.EQUALS, State.VAR_VAL)
+			.on(State.EQUALS, State.VAR_VAL, TokenType.VARNAME)
+			.otherwise(State.EQUALS, ErrorCode.EXPECTED_VAR_VAL)
+			.on(State.VAR_VAL, State.SEMICOLON, TokenType.SEMICOLON)
+			.otherwise(State.VAR_VAL, ErrorCode.SYNTAX_UNEXPECTED_TOKEN)
+			.otherwise(State.SEMICOLON, ErrorCode.TOKEN_AFTER_END)
+			.build();
 	
 	/* (non-Javadoc)
 	 * Runs through all tokens in line's tokenList, and ensures that they
 	 * match a legal state. Also checks that line ends in semicolon.
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.get(tokenList.size() - 1).getTokenType() != TokenType.SEMICOLON) {
-			throw new SyntaxException("Doesn't end in semicolon");
-		}
-		State currentState = State.VAR_NAME;
-		for (int i = 1; i < tokenList.size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenType(line.getTokenCount() - 1) != TokenType.SEMICOLON) {
+			return ErrorCode.NO_SEMICOLON_AT_END;
 		}
+		return TRANSITIONS.findSyntaxError(State.VAR_NAME, line);
 	}
 
 	/* (non-Javadoc)
 	 * Checks valid syntax for variable assignment.
 	 * Checks that the assignment of a variable is legal (whether literal or by
-	 * reference to another variable). Updates assigned variable's lineInitialized
-	 * field, if assignment was legal and has previously been -1.
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid(oop.ex6.line.Line,
+	 * reference to another variable), and that a referenced variable was
+	 * assigned a value before the line.
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError(oop.ex6.line.Line, oop.ex6.line.Line,
 	 *  oop.ex6.tables.VariableTable, oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException,
-			InvalidTableAccessException, SyntaxException {
-		List<Token> tokenList = line.getTokenList();
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
 		// leftVar is the variable name that appears left of equals sign:
-		Variable leftVar = varTable.getVariableInLegalScope(
-				tokenList.get(INDEX_OF_LEFT_VAR).getName(), line.getScope());
+		Variable leftVar = varTable.getBoundVariable(line, INDEX_OF_LEFT_VAR);
+		if (leftVar == null) {
+			return ErrorCode.VARIABLE_NOT_DECLARED;
+		}
 		if (leftVar.isFinal()) {
-			throw new SemanticsException("trying to assign value to final var");
+			return ErrorCode.ASSIGNMENT_TO_FINAL;
 		}
 		VarType leftVarType = leftVar.getType();
-		Token rightVarToken = tokenList.get(INDEX_OF_RIGHT_VAR);
-		if (TokenType.isVarValue(rightVarToken.getTokenType())) {
+		if (TokenType.isVarValue(line.getTokenType(INDEX_OF_RIGHT_VAR))) {
 			VarType valType = SemanticsValidator.getVarTypeFromToken(
-					rightVarToken, varTable, line);
+					line, INDEX_OF_RIGHT_VAR, varTable);
+			if (valType == null) {
+				return SemanticsValidator.getVarTypeError(line, INDEX_OF_RIGHT_VAR, varTable);
+			}
 			if (!VarType.doVarTypesMatch(leftVarType, valType)) {
-				throw new SemanticsException(
-						"Value doesn't match variable type");
+				return ErrorCode.VALUE_TYPE_MISMATCH;
 			}
 		} else {
-		Variable rightVar = varTable.getVariableInLegalScope(
-				rightVarToken.getName(), line.getScope());
-		if (!SemanticsValidator.wasVarInitializedInBadLine(rightVar,
-				line)) {
-			throw new SemanticsException("Variable has not been initialized");
+		Variable rightVar = varTable.getBoundVariable(line, INDEX_OF_RIGHT_VAR);
+		if (rightVar == null) {
+			return ErrorCode.VARIABLE_NOT_DECLARED;
+		}
+		if (!varTable.isInitialized(rightVar, line)) {
+			return ErrorCode.ASSIGNED_VARIABLE_NOT_INITIALIZED;
 		}
 		}
 		VarType rightVarType = SemanticsValidator.getVarTypeFromToken(
-				rightVarToken, varTable, line);
+				line, INDEX_OF_RIGHT_VAR, varTable);
+		if (rightVarType == null) {
+			return SemanticsValidator.getVarTypeError(line, INDEX_OF_RIGHT_VAR, varTable);
+		}
 		if (!VarType.doVarTypesMatch(leftVarType, rightVarType)) {
-			throw new SemanticsException("Variable types do not match");
+			return ErrorCode.VARIABLE_TYPES_MISMATCH;
 		}
-
+		return null;
 	}
 	
-	/**
-	 * Receives a current state and the following token, and determines whether
-	 * the token signifies a step a next legal state; returns new current state,
-	 * or throws exception if token does not signify legal state.
-	 * 
-	 * @param currentState
-	 * @param token
-	 * @return
-	 * @throws SyntaxException
-	 */
-
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException {
-		switch (currentState) {
-		case VAR_NAME:
-			if (token.getTokenType() == TokenType.EQUALS) {
-				return State.EQUALS;
-			}
-			throw new SyntaxException("Expected equals sign");
-
-		case EQUALS:
-			if (TokenType.isVarValue(token.getTokenType())
-					|| token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_VAL;
-			}
-
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_VAL;
-			}
-			throw new SyntaxException("Expected var val");
-
-		case VAR_VAL:
-
-			if (token.getTokenType() == TokenType.SEMICOLON) {
-				return State.SEMICOLON;
-			}
-			throw new SyntaxException("Syntax: unexpected token");
-
-		case SEMICOLON:
-			throw new SyntaxException("Nothing should appear after semicolon");
-		default:
-			throw new SyntaxException("Unknown state");
-		}
-	}
 }
@@ -2,10 +2,9 @@ package oop.ex6.validator;
 
 import java.util.List;
 
+import oop.ex6.line.ErrorCode;
 import oop.ex6.line.Line;
-import oop.ex6.line.Tokenizer.Token;
 import oop.ex6.line.TokenType;
-import oop.ex6.tables.InvalidTableAccessException;
 import oop.ex6.tables.MethodTable;
 import oop.ex6.tables.Variable;
 import oop.ex6.tables.VariableTable;
@@ -31,6 +30,25 @@ class VarDeclarationStateMachine implements StateMachine {
 		VAR_TYPE, VAR_VAL, EQUALS, VAR_NAME, COMMA, SEMICOLON;
 	}
 
+	private static final TransitionTable<State> TRANSITIONS = TransitionTable
+			.builder(State.class)
+			.on(State.VAR_TYPE, State.VAR_NAME, TokenType.VARNAME)
+			.otherwise(State.VAR_TYPE, ErrorCode.NO_VAR_NAME_AFTER_TYPE)
+			.on(State.VAR_NAME, State.EQUALS, TokenType.EQUALS)
+			.on(State.VAR_NAME, State.COMMA, TokenType.COMMA)
+			.on(State.VAR_NAME, State.SEMICOLON, TokenType.SEMICOLON)
+			.otherwise(State.VAR_NAME, ErrorCode.EXPECTED_EQUALS_SIGN)
+			.onVarValue(State.EQUALS, State.VAR_VAL)
+			.on(State.EQUALS, State.VAR_VAL, TokenType.VARNAME)
+			.otherwise(State.EQUALS, ErrorCode.EXPECTED_VARIABLE_VALUE)
+			.on(State.VAR_VAL, State.COMMA, TokenType.COMMA)
+			.on(State.VAR_VAL, State.SEMICOLON, TokenType.SEMICOLON)
+			.otherwise(State.VAR_VAL, ErrorCode.UNEXPECTED_TOKEN)
+			.on(State.COMMA, State.VAR_NAME, TokenType.VARNAME)
+			.otherwise(State.COMMA, ErrorCode.EXPECTED_VARIABLE_NAME)
+			.otherwise(State.SEMICOLON, ErrorCode.TOKEN_AFTER_END)
+			.build();
+
 	private static final int FINAL_TYPE_DECLARATION_INDEX = 1;
 	private static final int NON_FINAL_TYPE_DEC_INDEX = 0;
 
@@ -38,36 +56,29 @@ class VarDeclarationStateMachine implements StateMachine {
 	 * (non-Javadoc) Runs through all tokens in line's tokenList, and ensures
 	 * that they match a legal state. Also checks that line ends in semicolon.
 	 * 
-	 * @see oop.ex6.validator.StateMachine#isLineSyntaxValid(oop.ex6.line.Line)
+	 * @see oop.ex6.validator.StateMachine#findSyntaxError(oop.ex6.line.Line)
 	 */
-	public void isLineSyntaxValid(Line line) throws SyntaxException {
-		List<Token> tokenList = line.getTokenList();
-		if (tokenList.get(tokenList.size() - 1).getTokenType() != TokenType.SEMICOLON) {
-			throw new SyntaxException("Doesn't end in semicolon");
+	public ErrorCode findSyntaxError(Line line) {
+		if (line.getTokenType(line.getTokenCount() - 1) != TokenType.SEMICOLON) {
+			return ErrorCode.NO_SEMICOLON_AT_END;
 		}
 
-		State currentState = State.VAR_TYPE;
-		for (int i = 1; i < tokenList.size(); ++i) {
-			currentState = getNextState(currentState, line.getTokenList()
-					.get(i));
-		}
+		return TRANSITIONS.findSyntaxError(State.VAR_TYPE, line);
 	}
 
 	/*
 	 * (non-Javadoc) Checks valid syntax for final or regular variable
 	 * declaration. Checks that the assignment of a variable is legal (whether
-	 * literal or by reference to another variable). Updates assigned variable's
-	 * lineInitialized field, if assignment was legal.
+	 * literal or by reference to another variable), and that a referenced
+	 * variable was assigned a value before the line.
 	 * 
-	 * @see oop.ex6.validator.StateMachine#isLineSemanticsValid
+	 * @see oop.ex6.validator.StateMachine#findSemanticsError
 	 * (oop.ex6.line.Line, oop.ex6.tables.VariableTable,
 	 * oop.ex6.tables.MethodTable)
 	 */
 	@Override
-	public void isLineSemanticsValid(Line line, VariableTable varTable,
-			MethodTable methodTable) throws SemanticsException,
-			SyntaxException, InvalidTableAccessException {
-		List<Token> tokenList = line.getTokenList();
+	public ErrorCode findSemanticsError(Line line, Line previousLine, VariableTable varTable,
+			MethodTable methodTable) {
 		State currentState = State.VAR_TYPE;
 		int typeDecIndex;
 		// Checks whether line is a final or regular declaration line:
@@ -78,109 +89,46 @@ class VarDeclarationStateMachine implements StateMachine {
 		}
 		// Saves the token that indicates the type of the new var being
 		// declared:
-		Token varTypeToken = tokenList.get(typeDecIndex);
 		VarType newVarType = SemanticsValidator
-				.getVarTypeFromToken(varTypeToken, varTable, line);
+				.getVarTypeFromToken(line, typeDecIndex, varTable);
+		if (newVarType == null) {
+			return SemanticsValidator.getVarTypeError(line, typeDecIndex, varTable);
+		}
 		// Iterates over all tokens following the varType token,
 		// If token is a value being assigned, checks that assignment is legal.
-		for (int i = typeDecIndex + 1; i < tokenList.size(); ++i) {
-			Token token = line.getTokenList().get(i);
-			currentState = getNextState(currentState, token);
+		for (int i = typeDecIndex + 1; i < line.getTokenCount(); ++i) {
+			State nextState = TRANSITIONS.getNextState(currentState, line.getTokenType(i));
+			if (nextState == null) {
+				return TRANSITIONS.getError(currentState);
+			}
+			currentState = nextState;
 			if (currentState.equals(State.VAR_VAL)) {
-				if (TokenType.isVarValue(token.getTokenType())) {
+				if (TokenType.isVarValue(line.getTokenType(i))) {
 
 					VarType valType = SemanticsValidator.getVarTypeFromToken(
-							token, varTable, line);
+							line, i, varTable);
+					if (valType == null) {
+						return SemanticsValidator.getVarTypeError(line, i, varTable);
+					}
 					if (!VarType.doVarTypesMatch(newVarType, valType)) {
-						throw new SemanticsException(
-								"Value doesn't match variable type");
+						return ErrorCode.VALUE_TYPE_MISMATCH;
 					}
 				} else {
-					Variable rightVar = varTable.getVariableInLegalScope(
-							token.getName(), line.getScope());
+					Variable rightVar = varTable.getBoundVariable(line, i);
+					if (rightVar == null) {
+						return ErrorCode.VARIABLE_NOT_DECLARED;
+					}
 					if (!VarType.doVarTypesMatch(newVarType,
 							rightVar.getType())) {
-						throw new SemanticsException(
-								"New Variable type doesn't match referenced "
-										+ "variable type");
+						return ErrorCode.REFERENCED_TYPE_MISMATCH;
 					}
-					if (SemanticsValidator.wasVarInitializedInBadLine(rightVar,
-							line)) {
-						throw new SemanticsException(
-								"Variable wasn't initialized");
+					if (!varTable.isInitialized(rightVar, line)) {
+						return ErrorCode.VARIABLE_NOT_INITIALIZED;
 					}
 				}
 			}
 		}
-	}
-
-	/**
-	 * Receives a current state and the following token, and determines whether
-	 * the token signifies a step a next legal state; returns new current state,
-	 * or throws exception if token does not signify legal state.
-	 * 
-	 * @param currentState
-	 * @param token
-	 * @return
-	 * @throws SyntaxException
-	 */
-
-	private State getNextState(State currentState, Token token)
-			throws SyntaxException {
-		switch (currentState) {
-		case VAR_TYPE:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME;
-			}
-			throw new SyntaxException("No var name after type");
-
-		case VAR_NAME:
-			if (token.getTokenType() == TokenType.EQUALS) {
-				return State.EQUALS;
-			}
-
-			if (token.getTokenType() == TokenType.COMMA) {
-				return State.COMMA;
-			}
-
-			if (token.getTokenType() == TokenType.SEMICOLON) {
-				return State.SEMICOLON;
-			}
-
-			throw new SyntaxException("Expected equals sign");
-
-		case EQUALS:
-			if (TokenType.isVarValue(token.getTokenType())
-					|| token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_VAL;
-			}
-
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_VAL;
-			}
-			throw new SyntaxException("Expected variable value");
-
-		case VAR_VAL:
-			if (token.getTokenType() == TokenType.COMMA) {
-				return State.COMMA;
-			}
-			if (token.getTokenType() == TokenType.SEMICOLON) {
-				return State.SEMICOLON;
-			}
-			throw new SyntaxException("Unexpected token");
-
-		case COMMA:
-			if (token.getTokenType() == TokenType.VARNAME) {
-				return State.VAR_NAME;
-			}
-
-			throw new SyntaxException("Expected variable name");
-
-		case SEMICOLON:
-			throw new SyntaxException("Nothing should appear after semicolon");
-		default:
-			throw new SyntaxException("Unknown state");
-		}
+		return null;
 	}
 
 }